@@ -53,6 +53,9 @@ def extract():
         Parametri per mode="pages":
         - start_page: Pagina di inizio (1-based)
         - end_page: Pagina di fine (1-based, opzionale, default: -1 per fino alla fine)
+        - return_pages: Se "true", restituisce "pages" (il testo di ogni pagina) al posto di "text",
+          "has_images" (se ogni pagina contiene immagini) e "total_pages" (il numero di pagine
+          del documento) (opzionale, default: "false")
 
         Parametri per mode="sections":
         - index: JSON con l'indice delle sezioni
@@ -134,6 +137,20 @@ def extract():
                     'message': 'start_page e end_page devono essere numeri interi'
                 }), 400
 
+            return_pages = request.form.get('return_pages', 'false').lower() == 'true'
+            if return_pages:
+                page_texts = pdf_service.extract_page_texts(temp_path, start_page, end_page)
+                return jsonify({
+                    'success': True,
+                    'filename': file.filename,
+                    'mode': 'pages',
+                    'start_page': start_page,
+                    'end_page': end_page,
+                    'pages': page_texts.pages,
+                    'has_images': page_texts.has_images,
+                    'total_pages': page_texts.total_pages
+                }), 200
+
             text = pdf_service.extract_pages(temp_path, start_page, end_page)
 
             return jsonify({
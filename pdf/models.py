@@ -33,3 +33,11 @@ class ExtractedSection:
     """Rappresenta una sezione estratta dal PDF."""
     section: str  # Nome della sezione
     text: str     # Testo estratto
+
+
+@dataclass
+class PageTexts:
+    """Testo di un intervallo di pagine, una voce per pagina."""
+    pages: List[str]  # Testo di ogni pagina dell'intervallo, in ordine
+    has_images: List[bool]  # Se ogni pagina contiene immagini (il suo testo dipende allora dalla modalità)
+    total_pages: int  # Numero di pagine del documento
@@ -6,7 +6,7 @@ import asyncio
 import concurrent.futures
 from typing import List, Optional
 from pathlib import Path
-from models import PdfIndex, ExtractedSection
+from models import PdfIndex, ExtractedSection, PageTexts
 from pdf_extractor import PDFImageExtractor
 
 # Configure logging
@@ -132,6 +132,23 @@ class PdfService:
         Returns:
             Testo estratto dalle pagine specificate con immagini integrate inline
         """
+        extracted_text = "\n\n".join(self.extract_page_texts(file_path, start_page, end_page).pages)
+        logger.debug(f"Successfully extracted text from pages {start_page}-{end_page}, length: {len(extracted_text)}")
+        return extracted_text
+
+    def extract_page_texts(self, file_path: str, start_page: int, end_page: int = -1) -> PageTexts:
+        """
+        Come extract_pages, ma restituisce il testo di ogni pagina separatamente, insieme al
+        numero di pagine del documento.
+
+        Args:
+            file_path: Percorso del file PDF
+            start_page: Pagina di inizio (1-based)
+            end_page: Pagina di fine (1-based, -1 per fino alla fine)
+
+        Returns:
+            PageTexts con il testo di ogni pagina dell'intervallo, in ordine
+        """
         logger.info(f"Extracting pages {start_page}-{end_page} from PDF: {file_path}")
         self._validate_file_path(file_path)
         self._validate_page_range(start_page, end_page)
@@ -164,8 +181,10 @@ class PdfService:
 
             # Estrai il testo pagina per pagina, integrando le immagini nelle posizioni corrette
             result = []
+            has_images = []
             for page_num in range(start_idx, end_idx):
                 page = document.load_page(page_num)
+                has_images.append(len(page.get_images()) > 0)
 
                 # Estrai i blocchi di testo con coordinate
                 text_blocks = page.get_text("blocks")
@@ -179,10 +198,7 @@ class PdfService:
 
                 result.append(page_content)
 
-            extracted_text = "\n\n".join(result)
-            logger.debug(f"Successfully extracted text from pages {start_page}-{end_page}, length: {len(extracted_text)}")
-
-            return extracted_text
+            return PageTexts(pages=result, has_images=has_images, total_pages=total_pages)
 
         except Exception as e:
             logger.error(f"Error extracting text from PDF pages {start_page}-{end_page}: {e}")
@@ -0,0 +1,25 @@
+package com.matteominin.pdf_extractor.config;
+
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import org.bson.Document;
+
+/**
+ * Receives the changes of a watched collection, including those written by other instances
+ * of the application. Callbacks run on the watcher thread of the collection, one at a time
+ * and in commit order, and should return quickly.
+ */
+public interface ChangeStreamListener {
+
+    /**
+     * A document was inserted, updated, replaced or deleted. For inserts, updates and
+     * replacements the event carries the current full document.
+     */
+    void onChange(ChangeStreamDocument<Document> event);
+
+    /**
+     * Changes may have been missed (the stream could not be resumed, the collection was
+     * dropped or renamed, or watching stopped): anything derived from the collection must be
+     * discarded.
+     */
+    void onReset();
+}
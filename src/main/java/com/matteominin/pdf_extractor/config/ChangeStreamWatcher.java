@@ -0,0 +1,202 @@
+package com.matteominin.pdf_extractor.config;
+
+import com.mongodb.MongoCommandException;
+import com.mongodb.MongoException;
+import com.mongodb.client.ChangeStreamIterable;
+import com.mongodb.client.MongoChangeStreamCursor;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.FullDocument;
+import com.mongodb.client.model.changestream.OperationType;
+import jakarta.annotation.PreDestroy;
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches MongoDB change streams of the collections that in-process caches are built from,
+ * so that every instance of the application sees the writes of the others. Requires a
+ * replica set (a single-node one is enough) and is disabled by default.
+ * <p>
+ * Listeners register for a collection at startup; one thread per collection delivers its
+ * events. After a connection error the stream is resumed from the last delivered event, so
+ * no change is lost; if it cannot be resumed, listeners are reset. Caches should only be
+ * trusted while {@link #isActive(String)} is true for their collection.
+ */
+@Component
+public class ChangeStreamWatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChangeStreamWatcher.class);
+
+    // ChangeStreamHistoryLost, ChangeStreamFatalError
+    private static final List<Integer> NOT_RESUMABLE = List.of(286, 280);
+    // $changeStream is only supported on replica sets
+    private static final int NOT_REPLICA_SET = 40573;
+
+    // Absent with the embedded profile, which has no change streams
+    @Autowired(required = false)
+    private DBManager dbManager;
+
+    @Value("${app.mongodb.change-streams.enabled:false}")
+    private boolean enabled;
+
+    @Value("${app.mongodb.change-streams.max-await-ms:1000}")
+    private long maxAwaitMs;
+
+    @Value("${app.mongodb.change-streams.retry-delay-ms:5000}")
+    private long retryDelayMs;
+
+    private final Map<String, List<ChangeStreamListener>> listeners = new LinkedHashMap<>();
+    private final Map<String, Boolean> active = new ConcurrentHashMap<>();
+    private final List<Thread> threads = new ArrayList<>();
+    private volatile boolean running;
+
+    /**
+     * Registers a listener for a collection. Must be called before the application is ready,
+     * typically from a {@code @PostConstruct} method.
+     */
+    public synchronized void register(String collection, ChangeStreamListener listener) {
+        listeners.computeIfAbsent(collection, name -> new CopyOnWriteArrayList<>()).add(listener);
+    }
+
+    /**
+     * @return whether changes of the collection are currently being delivered
+     */
+    public boolean isActive(String collection) {
+        return active.getOrDefault(collection, false);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void start() {
+        if (!enabled || dbManager == null) {
+            logger.info("Change streams disabled, in-process caches are not used");
+            return;
+        }
+        running = true;
+        listeners.forEach((collection, collectionListeners) -> {
+            Thread thread = new Thread(() -> watch(collection, collectionListeners), "change-stream-" + collection);
+            thread.setDaemon(true);
+            thread.start();
+            threads.add(thread);
+        });
+    }
+
+    private void watch(String collection, List<ChangeStreamListener> collectionListeners) {
+        BsonDocument resumeToken = null;
+
+        while (running) {
+            ChangeStreamIterable<Document> stream = dbManager.getCollection(collection).watch()
+                .fullDocument(FullDocument.UPDATE_LOOKUP)
+                .maxAwaitTime(maxAwaitMs, TimeUnit.MILLISECONDS);
+            if (resumeToken != null) {
+                stream = stream.resumeAfter(resumeToken);
+            }
+
+            try (MongoChangeStreamCursor<ChangeStreamDocument<Document>> cursor = stream.cursor()) {
+                active.put(collection, true);
+                logger.info("Watching changes of {}{}", collection, resumeToken != null ? " (resumed)" : "");
+
+                while (running) {
+                    ChangeStreamDocument<Document> event = cursor.tryNext();
+                    if (event == null) {
+                        continue;
+                    }
+                    if (isTerminal(event.getOperationType())) {
+                        // The stream is invalidated after a drop or rename: start over from now
+                        resumeToken = null;
+                        reset(collection, collectionListeners);
+                        break;
+                    }
+                    dispatch(collection, collectionListeners, event);
+                    resumeToken = event.getResumeToken();
+                }
+            } catch (MongoCommandException e) {
+                if (e.getErrorCode() == NOT_REPLICA_SET) {
+                    logger.warn("Cannot watch {}: change streams require a replica set", collection);
+                    reset(collection, collectionListeners);
+                    return;
+                }
+                if (NOT_RESUMABLE.contains(e.getErrorCode())) {
+                    logger.warn("Change stream of {} cannot be resumed: {}", collection, e.getErrorMessage());
+                    resumeToken = null;
+                    reset(collection, collectionListeners);
+                } else {
+                    disconnected(collection, e);
+                }
+            } catch (MongoException e) {
+                disconnected(collection, e);
+            } catch (IllegalStateException e) {
+                // Cursor closed by the driver during shutdown
+                if (running) {
+                    disconnected(collection, e);
+                }
+            }
+        }
+        reset(collection, collectionListeners);
+    }
+
+    private static boolean isTerminal(OperationType operationType) {
+        return operationType == OperationType.DROP
+            || operationType == OperationType.RENAME
+            || operationType == OperationType.DROP_DATABASE
+            || operationType == OperationType.INVALIDATE;
+    }
+
+    private void dispatch(String collection, List<ChangeStreamListener> collectionListeners,
+                          ChangeStreamDocument<Document> event) {
+        for (ChangeStreamListener listener : collectionListeners) {
+            try {
+                listener.onChange(event);
+            } catch (Exception e) {
+                // A listener that cannot apply an event must not keep a stale state
+                logger.error("Listener failed on change of {}, resetting it: {}", collection, e.getMessage(), e);
+                listener.onReset();
+            }
+        }
+    }
+
+    private void reset(String collection, List<ChangeStreamListener> collectionListeners) {
+        active.put(collection, false);
+        collectionListeners.forEach(ChangeStreamListener::onReset);
+    }
+
+    private void disconnected(String collection, Exception e) {
+        // Changes are replayed from the resume token on reconnect; until then caches are bypassed
+        active.put(collection, false);
+        if (!running) {
+            return;
+        }
+        logger.warn("Change stream of {} interrupted, retrying in {} ms: {}", collection, retryDelayMs, e.getMessage());
+        try {
+            Thread.sleep(retryDelayMs);
+        } catch (InterruptedException interrupted) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        for (Thread thread : threads) {
+            try {
+                thread.join(maxAwaitMs + TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -1,5 +1,8 @@
 package com.matteominin.pdf_extractor.config;
 
+import com.mongodb.ConnectionString;
+import com.mongodb.MongoClientSettings;
+import com.mongodb.ReadPreference;
 import com.mongodb.client.MongoClient;
 import com.mongodb.client.MongoClients;
 import com.mongodb.client.MongoCollection;
@@ -9,10 +12,16 @@ import jakarta.annotation.PreDestroy;
 import org.bson.Document;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Component;
 
+import java.util.concurrent.TimeUnit;
+
 @Component
+@Profile("!embedded")
 public class DBManager {
     
     private static final Logger logger = LoggerFactory.getLogger(DBManager.class);
@@ -22,6 +31,30 @@ public class DBManager {
     
     @Value("${app.mongodb.database:features_repo}")
     private String databaseName;
+
+    @Value("${app.mongodb.pool.max-size:100}")
+    private int poolMaxSize;
+
+    @Value("${app.mongodb.pool.min-size:0}")
+    private int poolMinSize;
+
+    @Value("${app.mongodb.pool.max-wait-ms:120000}")
+    private long poolMaxWaitMs;
+
+    @Value("${app.mongodb.pool.max-idle-ms:0}")
+    private long poolMaxIdleMs;
+
+    @Value("${app.mongodb.pool.connect-timeout-ms:10000}")
+    private int connectTimeoutMs;
+
+    @Value("${app.mongodb.pool.socket-timeout-ms:0}")
+    private int socketTimeoutMs;
+
+    @Value("${app.mongodb.pool.read-preference:primary}")
+    private String readPreference;
+
+    @Autowired
+    private MongoPoolMetrics poolMetrics;
     
     private MongoClient mongoClient;
     private MongoDatabase database;
@@ -29,15 +62,46 @@ public class DBManager {
     @PostConstruct
     public void initMongoDB() {
         try {
-            mongoClient = MongoClients.create(mongoUri);
+            mongoClient = MongoClients.create(buildSettings());
             database = mongoClient.getDatabase(databaseName);
-            logger.info("MongoDB connection initialized successfully for database: {}", databaseName);
+            logger.info("MongoDB connection initialized successfully for database: {} (pool {}-{})",
+                databaseName, poolMinSize, poolMaxSize);
         } catch (Exception e) {
             logger.error("Failed to initialize MongoDB connection", e);
             throw new RuntimeException("Database initialization failed", e);
         }
     }
     
+    /**
+     * Client settings from the connection URI, with pool sizing, timeouts and read preference
+     * taken from the app.mongodb.pool properties and the metrics listeners attached.
+     */
+    private MongoClientSettings buildSettings() {
+        return MongoClientSettings.builder()
+            .applyConnectionString(new ConnectionString(mongoUri))
+            .applyToConnectionPoolSettings(pool -> pool
+                .maxSize(poolMaxSize)
+                .minSize(poolMinSize)
+                .maxWaitTime(poolMaxWaitMs, TimeUnit.MILLISECONDS)
+                .maxConnectionIdleTime(poolMaxIdleMs, TimeUnit.MILLISECONDS)
+                .addConnectionPoolListener(poolMetrics))
+            .applyToSocketSettings(socket -> socket
+                .connectTimeout(connectTimeoutMs, TimeUnit.MILLISECONDS)
+                .readTimeout(socketTimeoutMs, TimeUnit.MILLISECONDS))
+            .readPreference(ReadPreference.valueOf(readPreference))
+            .addCommandListener(poolMetrics)
+            .build();
+    }
+
+    /**
+     * Exposes the shared client as a bean, so Spring Boot's Mongo auto-configuration backs off
+     * instead of opening a pool of its own.
+     */
+    @Bean(destroyMethod = "")
+    public MongoClient mongoClient() {
+        return mongoClient;
+    }
+    
     @PreDestroy
     public void closeMongoDB() {
         if (mongoClient != null) {
@@ -71,6 +135,15 @@ public class DBManager {
         return database;
     }
     
+    /**
+     * Pool and command metrics of the shared client.
+     *
+     * @return the metrics listener
+     */
+    public MongoPoolMetrics getPoolMetrics() {
+        return poolMetrics;
+    }
+    
     /**
      * Check if the database connection is ready.
      * 
@@ -0,0 +1,123 @@
+package com.matteominin.pdf_extractor.config;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.h2.mvstore.MVMap;
+import org.h2.mvstore.MVStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Local file store used instead of MongoDB with the {@code embedded} profile, for single-node
+ * batch runs that should not need a database server. Backed by an H2 MVStore file: each
+ * repository keeps its records in sorted key-value maps, with records as JSON and embeddings
+ * in maps of their own as primitive {@code double[]}, so that reading metadata never decodes
+ * vectors. Pages are compressed on disk.
+ */
+@Component
+@Profile("embedded")
+public class EmbeddedStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(EmbeddedStore.class);
+
+    @Value("${app.embedded.path:data/archvalidator.mv.db}")
+    private String path;
+
+    @Value("${app.embedded.cache-size-mb:64}")
+    private int cacheSizeMb;
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+        .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    private MVStore store;
+
+    @PostConstruct
+    public void open() {
+        File file = new File(path);
+        if (file.getAbsoluteFile().getParentFile() != null) {
+            file.getAbsoluteFile().getParentFile().mkdirs();
+        }
+        store = new MVStore.Builder()
+            .fileName(path)
+            .cacheSize(cacheSizeMb)
+            .compress()
+            .open();
+        logger.info("Opened embedded store {}", file.getAbsolutePath());
+    }
+
+    @PreDestroy
+    public void close() {
+        if (store != null && !store.isClosed()) {
+            store.close();
+            logger.info("Embedded store closed");
+        }
+    }
+
+    public <K, V> MVMap<K, V> openMap(String name) {
+        return store.openMap(name);
+    }
+
+    /**
+     * Persists the changes made so far. Changes are also committed in the background
+     * about once a second and on shutdown.
+     */
+    public void commit() {
+        store.commit();
+    }
+
+    /**
+     * Serializes a record, without the given fields.
+     */
+    public byte[] toJson(Object value, String... excludedFields) {
+        try {
+            ObjectNode node = objectMapper.valueToTree(value);
+            node.remove(List.of(excludedFields));
+            return objectMapper.writeValueAsBytes(node);
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot serialize " + value.getClass().getSimpleName(), e);
+        }
+    }
+
+    public ObjectNode toTree(Object value) {
+        return objectMapper.valueToTree(value);
+    }
+
+    public byte[] toJson(ObjectNode node) {
+        try {
+            return objectMapper.writeValueAsBytes(node);
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot serialize record", e);
+        }
+    }
+
+    public <T> T fromJson(byte[] json, Class<T> type) {
+        try {
+            return objectMapper.readValue(json, type);
+        } catch (IOException e) {
+            throw new IllegalStateException("Corrupted " + type.getSimpleName() + " record", e);
+        }
+    }
+
+    public static double[] toArray(List<Double> embedding) {
+        return embedding.stream().mapToDouble(Double::doubleValue).toArray();
+    }
+
+    public static List<Double> toList(double[] embedding) {
+        List<Double> values = new ArrayList<>(embedding.length);
+        for (double value : embedding) {
+            values.add(value);
+        }
+        return values;
+    }
+}
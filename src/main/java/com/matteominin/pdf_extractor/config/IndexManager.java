@@ -0,0 +1,158 @@
+package com.matteominin.pdf_extractor.config;
+
+import com.mongodb.MongoCommandException;
+import com.mongodb.client.model.IndexOptions;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Declares the indexes behind the repositories' filters and sorts and creates them at
+ * startup. Creation is idempotent: indexes that already exist are left alone, and an
+ * index that conflicts with an existing one is logged and skipped rather than failing
+ * the application.
+ */
+@Component
+@Profile("!embedded")
+public class IndexManager {
+
+    private static final Logger logger = LoggerFactory.getLogger(IndexManager.class);
+
+    // Queries for features with embeddings filter on embedding $exists and sort by createdAt, _id,
+    // so a partial index on those keys serves them without indexing the embedding arrays
+    private static final Document HAS_EMBEDDING = new Document("embedding", new Document("$exists", true));
+
+    @Autowired
+    private DBManager dbManager;
+
+    @Value("${app.mongodb.indexes.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.mongodb.collection:features}")
+    private String featuresCollection;
+
+    @Value("${app.mongodb.collection.summary:summary_features}")
+    private String summaryCollection;
+
+    @Value("${app.mongodb.collection.coverage:coverage_reports}")
+    private String coverageCollection;
+
+    @Value("${app.mongodb.collection.coverage-summaries:coverage_report_summaries}")
+    private String coverageSummariesCollection;
+
+    @Value("${app.mongodb.collection.clustering-snapshots:clustering_snapshots}")
+    private String snapshotsCollection;
+
+    private static class IndexSpec {
+        final String collection;
+        final Document keys;
+        final IndexOptions options;
+
+        IndexSpec(String collection, Document keys, IndexOptions options) {
+            this.collection = collection;
+            this.keys = keys;
+            this.options = options;
+        }
+    }
+
+    private List<IndexSpec> indexSpecs() {
+        List<IndexSpec> specs = new ArrayList<>();
+
+        // Only keys that a query filters or sorts on: every index is paid for on each write.
+        // updatedAt_-1 serves the max(updatedAt) lookup of the corpus version.
+        specs.add(new IndexSpec(featuresCollection, new Document("updatedAt", -1),
+            new IndexOptions().name("updatedAt_-1")));
+        specs.add(new IndexSpec(featuresCollection, new Document("createdAt", 1).append("_id", 1),
+            new IndexOptions().name("createdAt_1__id_1_with_embedding").partialFilterExpression(HAS_EMBEDDING)));
+        // contentHash_1 (unique) is ensured by ContentHashUpserts before the first upsert, as
+        // idempotent ingestion depends on it even with provisioning disabled
+
+        specs.add(new IndexSpec(summaryCollection, new Document("createdAt", 1),
+            new IndexOptions().name("createdAt_1")));
+
+        specs.add(new IndexSpec(coverageCollection, new Document("reportName", 1).append("createdAt", -1),
+            new IndexOptions().name("reportName_1_createdAt_-1")));
+        specs.add(new IndexSpec(coverageCollection, new Document("createdAt", -1),
+            new IndexOptions().name("createdAt_-1")));
+        // Transient reports are removed by the TTL monitor once expiresAt has passed
+        specs.add(new IndexSpec(coverageCollection, new Document("expiresAt", 1),
+            new IndexOptions().name("expiresAt_1_ttl").expireAfter(0L, TimeUnit.SECONDS)));
+
+        specs.add(new IndexSpec(coverageSummariesCollection, new Document("reportName", 1).append("createdAt", -1),
+            new IndexOptions().name("reportName_1_createdAt_-1")));
+        specs.add(new IndexSpec(coverageSummariesCollection, new Document("createdAt", -1),
+            new IndexOptions().name("createdAt_-1")));
+
+        specs.add(new IndexSpec(snapshotsCollection,
+            new Document("parametersKey", 1).append("corpusVersion", 1).append("createdAt", -1),
+            new IndexOptions().name("parametersKey_1_corpusVersion_1_createdAt_-1")));
+
+        return specs;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void ensureIndexes() {
+        if (!enabled) {
+            logger.info("Index provisioning disabled");
+            return;
+        }
+
+        int created = 0;
+        for (IndexSpec spec : indexSpecs()) {
+            try {
+                dbManager.getCollection(spec.collection).createIndex(spec.keys, spec.options);
+                created++;
+            } catch (MongoCommandException e) {
+                // IndexOptionsConflict / IndexKeySpecsConflict / duplicate keys in existing data
+                logger.warn("Skipping index {} on {}: {}", spec.options.getName(), spec.collection,
+                    e.getErrorMessage());
+            } catch (Exception e) {
+                logger.error("Failed to create index {} on {}: {}", spec.options.getName(), spec.collection,
+                    e.getMessage());
+            }
+        }
+        logger.info("Ensured {} MongoDB indexes", created);
+    }
+
+    /**
+     * Usage of every index of the managed collections, from {@code $indexStats}: how many
+     * operations used each index since the server started tracking it.
+     *
+     * @return index statistics per collection
+     */
+    public Map<String, List<Map<String, Object>>> getIndexStats() {
+        Set<String> collections = new LinkedHashSet<>();
+        indexSpecs().forEach(spec -> collections.add(spec.collection));
+
+        Map<String, List<Map<String, Object>>> stats = new LinkedHashMap<>();
+        for (String collection : collections) {
+            List<Map<String, Object>> indexes = new ArrayList<>();
+            for (Document index : dbManager.getCollection(collection)
+                    .aggregate(List.of(new Document("$indexStats", new Document())))) {
+                Document accesses = index.get("accesses", Document.class);
+                Map<String, Object> entry = new LinkedHashMap<>();
+                entry.put("name", index.getString("name"));
+                entry.put("key", index.get("key"));
+                entry.put("ops", accesses != null ? accesses.get("ops") : null);
+                entry.put("since", accesses != null ? accesses.getDate("since") : null);
+                indexes.add(entry);
+            }
+            stats.put(collection, indexes);
+        }
+        return stats;
+    }
+}
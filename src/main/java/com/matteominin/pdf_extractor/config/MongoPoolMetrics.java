@@ -0,0 +1,126 @@
+package com.matteominin.pdf_extractor.config;
+
+import com.matteominin.pdf_extractor.util.LatencyStats;
+import com.mongodb.connection.ConnectionPoolSettings;
+import com.mongodb.event.CommandFailedEvent;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandSucceededEvent;
+import com.mongodb.event.ConnectionCheckOutFailedEvent;
+import com.mongodb.event.ConnectionCheckOutStartedEvent;
+import com.mongodb.event.ConnectionCheckedInEvent;
+import com.mongodb.event.ConnectionCheckedOutEvent;
+import com.mongodb.event.ConnectionClosedEvent;
+import com.mongodb.event.ConnectionCreatedEvent;
+import com.mongodb.event.ConnectionPoolCreatedEvent;
+import com.mongodb.event.ConnectionPoolListener;
+import org.springframework.stereotype.Component;
+import org.springframework.context.annotation.Profile;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Connection pool and command metrics of the shared MongoDB client, fed by the driver's
+ * event listeners. Counters are summed over all servers of the deployment.
+ */
+@Component
+@Profile("!embedded")
+public class MongoPoolMetrics implements ConnectionPoolListener, CommandListener {
+
+    private volatile ConnectionPoolSettings poolSettings;
+
+    private final AtomicInteger openConnections = new AtomicInteger();
+    private final AtomicInteger checkedOutConnections = new AtomicInteger();
+    private final AtomicInteger waitQueueSize = new AtomicInteger();
+    private final AtomicLong checkOutFailures = new AtomicLong();
+    private final AtomicLong failedCommands = new AtomicLong();
+
+    private final LatencyStats checkOutWait = new LatencyStats();
+    private final Map<String, LatencyStats> commandLatency = new ConcurrentHashMap<>();
+
+    @Override
+    public void connectionPoolCreated(ConnectionPoolCreatedEvent event) {
+        poolSettings = event.getSettings();
+    }
+
+    @Override
+    public void connectionCreated(ConnectionCreatedEvent event) {
+        openConnections.incrementAndGet();
+    }
+
+    @Override
+    public void connectionClosed(ConnectionClosedEvent event) {
+        openConnections.decrementAndGet();
+    }
+
+    @Override
+    public void connectionCheckOutStarted(ConnectionCheckOutStartedEvent event) {
+        waitQueueSize.incrementAndGet();
+    }
+
+    @Override
+    public void connectionCheckedOut(ConnectionCheckedOutEvent event) {
+        waitQueueSize.decrementAndGet();
+        checkedOutConnections.incrementAndGet();
+        checkOutWait.record(event.getElapsedTime(TimeUnit.NANOSECONDS));
+    }
+
+    @Override
+    public void connectionCheckOutFailed(ConnectionCheckOutFailedEvent event) {
+        waitQueueSize.decrementAndGet();
+        checkOutFailures.incrementAndGet();
+        checkOutWait.record(event.getElapsedTime(TimeUnit.NANOSECONDS));
+    }
+
+    @Override
+    public void connectionCheckedIn(ConnectionCheckedInEvent event) {
+        checkedOutConnections.decrementAndGet();
+    }
+
+    @Override
+    public void commandSucceeded(CommandSucceededEvent event) {
+        commandLatency.computeIfAbsent(event.getCommandName(), name -> new LatencyStats())
+            .record(event.getElapsedTime(TimeUnit.NANOSECONDS));
+    }
+
+    @Override
+    public void commandFailed(CommandFailedEvent event) {
+        failedCommands.incrementAndGet();
+        commandLatency.computeIfAbsent(event.getCommandName(), name -> new LatencyStats())
+            .record(event.getElapsedTime(TimeUnit.NANOSECONDS));
+    }
+
+    /**
+     * @return pool configuration, pool usage and per-command latency
+     */
+    public Map<String, Object> toMap() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+
+        ConnectionPoolSettings settings = poolSettings;
+        if (settings != null) {
+            Map<String, Object> pool = new LinkedHashMap<>();
+            pool.put("maxSize", settings.getMaxSize());
+            pool.put("minSize", settings.getMinSize());
+            pool.put("maxWaitTimeMs", settings.getMaxWaitTime(TimeUnit.MILLISECONDS));
+            pool.put("maxConnectionIdleTimeMs", settings.getMaxConnectionIdleTime(TimeUnit.MILLISECONDS));
+            metrics.put("settings", pool);
+        }
+
+        metrics.put("openConnections", openConnections.get());
+        metrics.put("checkedOutConnections", checkedOutConnections.get());
+        metrics.put("waitQueueSize", waitQueueSize.get());
+        metrics.put("checkOutFailures", checkOutFailures.get());
+        metrics.put("checkOutWait", checkOutWait.toMap());
+        metrics.put("failedCommands", failedCommands.get());
+
+        Map<String, Object> commands = new TreeMap<>();
+        commandLatency.forEach((name, stats) -> commands.put(name, stats.toMap()));
+        metrics.put("commands", commands);
+        return metrics;
+    }
+}
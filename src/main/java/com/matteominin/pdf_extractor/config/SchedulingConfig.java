@@ -0,0 +1,12 @@
+package com.matteominin.pdf_extractor.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Enables {@code @Scheduled} maintenance jobs such as coverage report archival.
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
@@ -0,0 +1,132 @@
+package com.matteominin.pdf_extractor.config;
+
+import com.matteominin.pdf_extractor.util.LatencyStats;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.client.RestClient;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Shared HTTP client for the Python extraction sidecar. One JDK {@link HttpClient} keeps
+ * HTTP/1.1 connections alive between calls, so repeated page-range requests reuse warm
+ * connections; multipart bodies are streamed from disk rather than buffered. At most
+ * {@code max-connections} calls run at once, further callers wait for a free slot. Latency is
+ * recorded per extraction mode.
+ */
+@Component
+public class SidecarClient {
+
+    private static final Logger logger = LoggerFactory.getLogger(SidecarClient.class);
+
+    @Value("${app.api.base-url}")
+    private String baseUrl;
+
+    @Value("${app.api.sidecar.connect-timeout-ms:5000}")
+    private long connectTimeoutMs;
+
+    // Vision-based image extraction can take minutes on long documents
+    @Value("${app.api.sidecar.read-timeout-ms:600000}")
+    private long readTimeoutMs;
+
+    @Value("${app.api.sidecar.max-connections:16}")
+    private int maxConnections;
+
+    private RestClient restClient;
+    private Semaphore permits;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong failures = new AtomicLong();
+    private final LatencyStats permitWait = new LatencyStats();
+    private final Map<String, LatencyStats> latencyByMode = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        HttpClient httpClient = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+            .build();
+        JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(httpClient);
+        requestFactory.setReadTimeout(Duration.ofMillis(readTimeoutMs));
+
+        restClient = RestClient.builder()
+            .baseUrl(baseUrl)
+            .requestFactory(requestFactory)
+            .build();
+        permits = new Semaphore(Math.max(1, maxConnections), true);
+        logger.info("Sidecar client for {} (max {} connections, read timeout {} ms)", baseUrl, maxConnections,
+            readTimeoutMs);
+    }
+
+    /**
+     * Posts a multipart form to {@code /extract}.
+     *
+     * @param mode extraction mode, used to group the latency metrics
+     * @return the JSON response
+     */
+    public Map<String, Object> extract(String mode, MultiValueMap<String, Object> parts) {
+        long waitStart = System.nanoTime();
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for a sidecar connection", e);
+        }
+        long start = System.nanoTime();
+        permitWait.record(start - waitStart);
+        inFlight.incrementAndGet();
+        try {
+            Map<String, Object> response = restClient.post()
+                .uri("/extract")
+                .contentType(MediaType.MULTIPART_FORM_DATA)
+                .body(parts)
+                .retrieve()
+                .body(new ParameterizedTypeReference<Map<String, Object>>() {});
+            if (response == null) {
+                throw new RuntimeException("No response from PDF extraction service");
+            }
+            return response;
+        } catch (RuntimeException e) {
+            failures.incrementAndGet();
+            throw e;
+        } finally {
+            inFlight.decrementAndGet();
+            permits.release();
+            latencyByMode.computeIfAbsent(mode, key -> new LatencyStats()).record(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * @return configuration, calls in flight and waiting, failures, wait time for a free
+     * connection slot and call latency per mode
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("baseUrl", baseUrl);
+        stats.put("maxConnections", maxConnections);
+        stats.put("connectTimeoutMs", connectTimeoutMs);
+        stats.put("readTimeoutMs", readTimeoutMs);
+        stats.put("inFlight", inFlight.get());
+        stats.put("waiting", permits.getQueueLength());
+        stats.put("failures", failures.get());
+        stats.put("slotWait", permitWait.toMap());
+        Map<String, Object> latency = new LinkedHashMap<>();
+        latencyByMode.forEach((mode, modeStats) -> latency.put(mode, modeStats.toMap()));
+        stats.put("latency", latency);
+        return stats;
+    }
+}
@@ -3,14 +3,18 @@ package com.matteominin.pdf_extractor.controller;
 import com.matteominin.pdf_extractor.model.pdf.Feature;
 import com.matteominin.pdf_extractor.model.coverage.Coverage;
 import com.matteominin.pdf_extractor.model.coverage.CoverageReport;
+import com.matteominin.pdf_extractor.model.coverage.CoverageStats;
 import com.matteominin.pdf_extractor.model.coverage.CoveredFeature;
+import com.matteominin.pdf_extractor.model.coverage.UncoveredFeatureStats;
 import com.matteominin.pdf_extractor.model.feature.SummaryFeature;
+import com.matteominin.pdf_extractor.service.CoverageReportArchiver;
 import com.matteominin.pdf_extractor.service.CoverageReportService;
 import com.matteominin.pdf_extractor.service.SummaryFeatureService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 import org.springframework.web.bind.annotation.*;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.HttpStatus;
 import org.slf4j.Logger;
@@ -18,8 +22,11 @@ import org.slf4j.LoggerFactory;
 
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/api/coverage-reports")
@@ -29,6 +36,9 @@ public class CoverageReportController {
     
     @Autowired
     private CoverageReportService coverageReportService;
+
+    @Autowired
+    private CoverageReportArchiver coverageReportArchiver;
     
     @Autowired
     private SummaryFeatureService summaryFeatureService;
@@ -112,14 +122,16 @@ public class CoverageReportController {
 
     /**
      * Get coverage report by ID
-     * GET /api/coverage-reports/{id}
+     * GET /api/coverage-reports/{id}?includeText=true
+     * Matched section text is only loaded when includeText is set.
      */
     @GetMapping("/{id}")
-    public ResponseEntity<Map<String, Object>> getCoverageReportById(@PathVariable String id) {
+    public ResponseEntity<Map<String, Object>> getCoverageReportById(@PathVariable String id,
+                                                                     @RequestParam(defaultValue = "false") boolean includeText) {
         Map<String, Object> response = new HashMap<>();
         
         try {
-            CoverageReport report = coverageReportService.getCoverageReportById(id);
+            CoverageReport report = coverageReportService.getCoverageReportById(id, includeText);
             response.put("success", true);
             response.put("report", report);
             
@@ -144,16 +156,133 @@ public class CoverageReportController {
         }
     }
 
+    /**
+     * Write-behind queue of coverage reports: pending, written and failed counts
+     * GET /api/coverage-reports/write-queue
+     */
+    @GetMapping("/write-queue")
+    public ResponseEntity<Map<String, Object>> getWriteQueueStats() {
+        return ResponseEntity.ok(coverageReportService.getWriteQueueStats());
+    }
+
+    /**
+     * Archive the reports older than the retention period now, instead of waiting for the
+     * scheduled run
+     * POST /api/coverage-reports/archive
+     */
+    @PostMapping("/archive")
+    public ResponseEntity<Map<String, Object>> archiveCoverageReports() {
+        Map<String, Object> response = new HashMap<>();
+
+        try {
+            int archived = coverageReportArchiver.archive();
+            response.put("success", true);
+            response.put("archived", archived);
+            return ResponseEntity.ok(response);
+
+        } catch (IllegalArgumentException e) {
+            response.put("success", false);
+            response.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+
+        } catch (Exception e) {
+            logger.error("Error archiving coverage reports: {}", e.getMessage(), e);
+            response.put("success", false);
+            response.put("error", "Failed to archive coverage reports: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        }
+    }
+
+    /**
+     * Coverage statistics per report name and time bucket, computed in the database
+     * GET /api/coverage-reports/stats?reportName=...&from=2024-01-01&to=2024-07-01&interval=week
+     * from is inclusive, to exclusive; interval is day (default), week or month.
+     */
+    @GetMapping("/stats")
+    public ResponseEntity<Map<String, Object>> getCoverageStats(
+            @RequestParam(required = false) String reportName,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) Date from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) Date to,
+            @RequestParam(defaultValue = "day") String interval) {
+        Map<String, Object> response = new HashMap<>();
+
+        try {
+            List<CoverageStats> stats = coverageReportService.getCoverageStats(reportName, from, to, interval);
+            response.put("success", true);
+            response.put("interval", interval.toLowerCase());
+            response.put("buckets", stats);
+            response.put("trend", coverageReportService.getCoverageTrend(stats, interval));
+            response.put("count", stats.size());
+            return ResponseEntity.ok(response);
+
+        } catch (IllegalArgumentException e) {
+            response.put("success", false);
+            response.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+
+        } catch (Exception e) {
+            logger.error("Error computing coverage statistics: {}", e.getMessage(), e);
+            response.put("success", false);
+            response.put("error", "Failed to compute coverage statistics: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        }
+    }
+
+    /**
+     * Reference features most often left uncovered
+     * GET /api/coverage-reports/stats/uncovered?reportName=...&from=...&to=...&limit=20
+     */
+    @GetMapping("/stats/uncovered")
+    public ResponseEntity<Map<String, Object>> getTopUncoveredFeatures(
+            @RequestParam(required = false) String reportName,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) Date from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) Date to,
+            @RequestParam(defaultValue = "20") int limit) {
+        Map<String, Object> response = new HashMap<>();
+
+        try {
+            List<UncoveredFeatureStats> stats = coverageReportService.getTopUncoveredFeatures(reportName, from, to, limit);
+
+            Set<String> referenceIds = new HashSet<>();
+            stats.forEach(feature -> referenceIds.add(feature.getReferenceFeatureId()));
+            referenceIds.remove(null);
+            Map<String, SummaryFeature> referenceFeatures = summaryFeatureService.getSummaryFeaturesByIds(referenceIds);
+            for (UncoveredFeatureStats feature : stats) {
+                SummaryFeature refFeature = referenceFeatures.get(feature.getReferenceFeatureId());
+                if (refFeature != null) {
+                    feature.setFeature(refFeature.getFeature());
+                }
+            }
+
+            response.put("success", true);
+            response.put("uncoveredFeatures", stats);
+            response.put("count", stats.size());
+            return ResponseEntity.ok(response);
+
+        } catch (IllegalArgumentException e) {
+            response.put("success", false);
+            response.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+
+        } catch (Exception e) {
+            logger.error("Error computing uncovered feature statistics: {}", e.getMessage(), e);
+            response.put("success", false);
+            response.put("error", "Failed to compute uncovered feature statistics: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        }
+    }
+
     /**
      * Get covered features by report Id
-     * GET /api/coverage-reports/{id}/covered-features
+     * GET /api/coverage-reports/{id}/covered-features?includeText=true
      */
     @GetMapping("/{id}/covered-features")
-    public ResponseEntity<Map<String, Object>> getCoveredFeaturesByReportId(@PathVariable String id) {
+    public ResponseEntity<Map<String, Object>> getCoveredFeaturesByReportId(@PathVariable String id,
+                                                                            @RequestParam(defaultValue = "false") boolean includeText) {
         Map<String, Object> response = new HashMap<>();
         
         try {
-            CoverageReport report = coverageReportService.getCoverageReportById(id);
+            CoverageReport report = coverageReportService.getCoverageReportById(id, includeText);
             if (report == null) {
                 response.put("success", false);
                 response.put("error", "Coverage report not found with ID: " + id);
@@ -168,6 +297,15 @@ public class CoverageReportController {
 
             List<Map<String, Object>> enrichedCoveredFeatures = new ArrayList<>();
             if (report.getCoverage().getCoveredFeatures() != null) {
+                // Resolve all reference features with one query instead of one per covered feature
+                Set<String> referenceIds = new HashSet<>();
+                for (CoveredFeature coveredFeature : report.getCoverage().getCoveredFeatures()) {
+                    if (coveredFeature.getReferenceFeatureId() != null) {
+                        referenceIds.add(coveredFeature.getReferenceFeatureId());
+                    }
+                }
+                Map<String, SummaryFeature> referenceFeatures = summaryFeatureService.getSummaryFeaturesByIds(referenceIds);
+
                 for (CoveredFeature coveredFeature : report.getCoverage().getCoveredFeatures()) {
                     Map<String, Object> enrichedFeature = new HashMap<>();
 
@@ -179,11 +317,13 @@ public class CoverageReportController {
                     if (coveredFeature.getReferenceFeatureId() != null) {
                         Map<String, Object> referenceFeature = new HashMap<>();
                         String featureId = coveredFeature.getReferenceFeatureId();
-                        SummaryFeature refFeature = summaryFeatureService.getSummaryFeatureById(featureId);
+                        SummaryFeature refFeature = referenceFeatures.get(featureId);
                         referenceFeature.put("referenceFeatureId", featureId);
-                        referenceFeature.put("feature", refFeature.getFeature());
-                        referenceFeature.put("description", refFeature.getDescription());
-                        referenceFeature.put("checklist", refFeature.getChecklist());
+                        if (refFeature != null) {
+                            referenceFeature.put("feature", refFeature.getFeature());
+                            referenceFeature.put("description", refFeature.getDescription());
+                            referenceFeature.put("checklist", refFeature.getChecklist());
+                        }
                         enrichedFeature.put("referenceFeature", referenceFeature);
                     }
 
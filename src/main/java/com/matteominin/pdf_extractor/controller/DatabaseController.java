@@ -0,0 +1,60 @@
+package com.matteominin.pdf_extractor.controller;
+
+import com.matteominin.pdf_extractor.config.DBManager;
+import com.matteominin.pdf_extractor.config.IndexManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/db")
+@Profile("!embedded")
+public class DatabaseController {
+
+    private static final Logger logger = LoggerFactory.getLogger(DatabaseController.class);
+
+    @Autowired
+    private DBManager dbManager;
+
+    @Autowired
+    private IndexManager indexManager;
+
+    /**
+     * Connection pool usage (open, checked-out, waiting), check-out wait times and
+     * per-command latency of the shared MongoDB client.
+     */
+    @GetMapping("/pool-metrics")
+    public ResponseEntity<?> getPoolMetrics() {
+        try {
+            return ResponseEntity.ok(dbManager.getPoolMetrics().toMap());
+        } catch (Exception e) {
+            logger.error("Error retrieving pool metrics: {}", e.getMessage(), e);
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "Failed to retrieve pool metrics: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(error);
+        }
+    }
+
+    /**
+     * Indexes of the application collections with their usage counts, to spot unused
+     * indexes and queries that are not served by one.
+     */
+    @GetMapping("/indexes")
+    public ResponseEntity<?> getIndexStats() {
+        try {
+            return ResponseEntity.ok(indexManager.getIndexStats());
+        } catch (Exception e) {
+            logger.error("Error retrieving index statistics: {}", e.getMessage(), e);
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "Failed to retrieve index statistics: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(error);
+        }
+    }
+}
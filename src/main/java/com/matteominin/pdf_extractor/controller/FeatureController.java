@@ -1,17 +1,20 @@
 package com.matteominin.pdf_extractor.controller;
 
 import com.matteominin.pdf_extractor.model.pdf.Feature;
+import com.matteominin.pdf_extractor.model.pdf.FeatureView;
 import com.matteominin.pdf_extractor.model.coverage.Coverage;
 import com.matteominin.pdf_extractor.model.coverage.CoverageReport;
 import com.matteominin.pdf_extractor.model.coverage.CoveredFeature;
 import com.matteominin.pdf_extractor.model.coverage.UncoveredFeature;
 import com.matteominin.pdf_extractor.model.feature.MatchedFeature;
 import com.matteominin.pdf_extractor.model.feature.SummaryFeature;
+import com.matteominin.pdf_extractor.model.ingestion.BulkUpsertResult;
 import com.matteominin.pdf_extractor.service.FeatureService;
 import com.matteominin.pdf_extractor.service.FeatureClusteringService;
 import com.matteominin.pdf_extractor.service.SummaryFeatureService;
 import com.matteominin.pdf_extractor.service.ClusteringService;
 import com.matteominin.pdf_extractor.service.CoverageReportService;
+import com.matteominin.pdf_extractor.service.CoverageReportArchiver;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 import org.springframework.web.bind.annotation.*;
@@ -19,19 +22,27 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.List;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.stream.Stream;
 
 @RestController
 @RequestMapping("/api/features")
 public class FeatureController {
     
     private static final Logger logger = LoggerFactory.getLogger(FeatureController.class);
+
+    private static final String NDJSON = "application/x-ndjson";
+    private static final int NDJSON_FLUSH_INTERVAL = 100;
+    private static final String NEXT_AFTER_HEADER = "X-Next-After";
     
     @Autowired
     private FeatureService featureService;
@@ -44,6 +55,9 @@ public class FeatureController {
     
     @Autowired
     private CoverageReportService coverageReportService;
+
+    @Autowired
+    private CoverageReportArchiver coverageReportArchiver;
     
     @Value("${spring.ai.openai.api-key:#{null}}")
     private String apiKey;
@@ -85,10 +99,19 @@ public class FeatureController {
         Map<String, Object> response = new HashMap<>();
 
         try {
-            List<Feature> embeddedFeatures = featureService.addBatchFeatures(features);
-            response.put("success", true);
-            response.put("processed", embeddedFeatures.size());
-            response.put("message", String.format("Batch embedding completed for %d features", embeddedFeatures.size()));
+            BulkUpsertResult result = featureService.ingestBatchFeatures(features);
+            response.put("success", result.getFailed() == 0);
+            response.put("processed", result.getIds().size());
+            response.put("inserted", result.getInserted());
+            response.put("matched", result.getMatched());
+            response.put("failed", result.getFailed());
+            response.put("chunks", result.getChunks());
+            response.put("message", String.format("Batch embedding completed for %d features: %d inserted, %d matched, %d failed",
+                result.getIds().size(), result.getInserted(), result.getMatched(), result.getFailed()));
+            // Some writes failed: retrying the batch is safe, stored features are only matched
+            if (result.getFailed() > 0) {
+                return ResponseEntity.status(HttpStatus.MULTI_STATUS).body(response);
+            }
             return ResponseEntity.ok(response);
         } catch (IllegalArgumentException e) {
             logger.warn("Invalid batch data: {}", e.getMessage());
@@ -227,12 +250,37 @@ public class FeatureController {
         }
     }
 
+    /**
+     * Lists features in ID order. Embeddings and section texts are left out unless requested
+     * with include=embedding,section_text. Without a limit all features are written straight
+     * from a database cursor; with one, a page of at most {@code limit} features after the ID
+     * given in {@code after} is returned, and the X-Next-After header carries the cursor for
+     * the next page when there may be more.
+     */
     @GetMapping("/all")
-    public ResponseEntity<List<Feature>> getAllFeatures() {
-        ResponseEntity<List<Feature>> response;
+    public ResponseEntity<?> getAllFeatures(@RequestParam(defaultValue = "") List<String> include,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "0") int limit) {
+        ResponseEntity<?> response;
         try {
-            List<Feature> features = featureService.getAllFeatures();
-            response = ResponseEntity.ok(features);
+            Stream<FeatureView> features = featureService.streamFeatureViews(include, after, limit);
+            if (limit == 0) {
+                response = ResponseEntity.ok(features);
+            } else {
+                List<FeatureView> page;
+                try (features) {
+                    page = features.toList();
+                }
+                ResponseEntity.BodyBuilder builder = ResponseEntity.ok();
+                if (page.size() == limit) {
+                    builder.header(NEXT_AFTER_HEADER, page.get(page.size() - 1).getId());
+                }
+                response = builder.body(page);
+            }
+        } catch (IllegalArgumentException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            response = ResponseEntity.badRequest().body(error);
         } catch (Exception e) {
             logger.error("Error retrieving features: {}", e.getMessage(), e);
             response = ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(null);
@@ -241,14 +289,51 @@ public class FeatureController {
         return response;
     }
 
+    /**
+     * Same listing as {@link #getAllFeatures} as newline-delimited JSON, one feature per line,
+     * written to the response as documents are read from the cursor. To continue after a
+     * limited page, pass the ID of the last line as {@code after}.
+     */
+    @GetMapping(value = "/all", produces = NDJSON)
+    public ResponseEntity<?> streamAllFeatures(@RequestParam(defaultValue = "") List<String> include,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "0") int limit) {
+        try {
+            // Validates the parameters before the response is committed
+            Stream<FeatureView> features = featureService.streamFeatureViews(include, after, limit);
+            StreamingResponseBody body = out -> {
+                try (features) {
+                    Iterator<FeatureView> iterator = features.iterator();
+                    int written = 0;
+                    while (iterator.hasNext()) {
+                        out.write(objectMapper.writeValueAsBytes(iterator.next()));
+                        out.write('\n');
+                        if (++written % NDJSON_FLUSH_INTERVAL == 0) {
+                            out.flush();
+                        }
+                    }
+                    out.flush();
+                }
+            };
+            return ResponseEntity.ok().contentType(MediaType.parseMediaType(NDJSON)).body(body);
+        } catch (IllegalArgumentException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.badRequest().contentType(MediaType.APPLICATION_JSON).body(error);
+        }
+    }
+
     /**
      * Clusters features based on cosine similarity of their embeddings.
      * Default threshold is 0.85 as requested.
+     * The algorithm is "greedy" (default), "streaming" for corpora that do not fit in memory, or
+     * "single-linkage" / "average-linkage" to cut a cached hierarchy at any threshold.
      */
     @PostMapping("/cluster")
-    public ResponseEntity<?> clusterFeatures(@RequestParam(defaultValue = "0.85") double threshold) {
+    public ResponseEntity<?> clusterFeatures(@RequestParam(defaultValue = "0.85") double threshold,
+            @RequestParam(defaultValue = FeatureClusteringService.GREEDY_ALGORITHM) String algorithm) {
         try {
-            logger.info("Starting feature clustering with threshold: {}", threshold);
+            logger.info("Starting {} feature clustering with threshold: {}", algorithm, threshold);
             
             if (threshold < 0.0 || threshold > 1.0) {
                 Map<String, String> error = new HashMap<>();
@@ -256,13 +341,18 @@ public class FeatureController {
                 return ResponseEntity.badRequest().body(error);
             }
 
-            List<List<Feature>> clusters = clusteringService.clusterFeatures(threshold);
+            List<List<Feature>> clusters = clusteringService.clusterFeatures(threshold, algorithm);
 
             // Create response with clusters and statistics
             List<List<Feature>> response = new ArrayList<>();
             response.addAll(clusters);
             logger.info("Clustering completed. Found {} clusters", clusters.size());
             return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Invalid clustering request: {}", e.getMessage());
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
         } catch (Exception e) {
             logger.error("Error during feature clustering: {}", e.getMessage(), e);
             Map<String, String> error = new HashMap<>();
@@ -271,6 +361,34 @@ public class FeatureController {
         }
     }
     
+    /**
+     * Returns statistics of the clustering for the given threshold.
+     * Served from the stored clustering snapshot when the corpus has not changed.
+     */
+    @GetMapping("/cluster/stats")
+    public ResponseEntity<?> getClusteringStats(@RequestParam(defaultValue = "0.85") double threshold,
+            @RequestParam(defaultValue = FeatureClusteringService.GREEDY_ALGORITHM) String algorithm) {
+        try {
+            if (threshold < 0.0 || threshold > 1.0) {
+                Map<String, String> error = new HashMap<>();
+                error.put("error", "Threshold must be between 0.0 and 1.0");
+                return ResponseEntity.badRequest().body(error);
+            }
+
+            return ResponseEntity.ok(clusteringService.getClusteringStats(threshold, algorithm));
+        } catch (IllegalArgumentException e) {
+            logger.warn("Invalid clustering request: {}", e.getMessage());
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        } catch (Exception e) {
+            logger.error("Error retrieving clustering statistics: {}", e.getMessage(), e);
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "Failed to retrieve clustering statistics: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(error);
+        }
+    }
+
     /**
      * Checks coverage of summary features against provided features using cosine similarity.
      * Returns which summary features are covered and which are missing.
@@ -399,12 +517,14 @@ public class FeatureController {
                 .success(true)
                 .reportName("feature_coverage")
                 .description("Coverage analysis for feature validation")
+                .expiresAt(coverageReportArchiver.transientExpiry())
                 .build();
             
-            // Save the report in validation_reports collection with feature_coverage document
+            // Queue the report for write-behind insertion; its ID is assigned up front
+            String reportId = null;
             try {
-                CoverageReport savedReport = coverageReportService.saveCoverageReport(report);
-                logger.info("Coverage report saved with name: {}", savedReport.getReportName());
+                reportId = coverageReportService.queueCoverageReport(report).getId();
+                logger.info("Coverage report queued with ID: {}", reportId);
             } catch (Exception e) {
                 logger.warn("Failed to save coverage report: {}", e.getMessage());
                 // Continue execution even if saving fails
@@ -416,9 +536,15 @@ public class FeatureController {
             response.put("totalSummaryFeatures", summaryFeatures.size());
             response.put("providedFeatures", providedFeatures.size());
             response.put("coverage", coverageResult);
-            response.put("reportSaved", true);
+            response.put("reportSaved", reportId != null);
+            response.put("reportId", reportId);
 
             // Transform coveredFeatures to workflow-compatible format
+            Map<String, SummaryFeature> summaryFeaturesById = new HashMap<>();
+            for (SummaryFeature summaryFeature : summaryFeatures) {
+                summaryFeaturesById.put(summaryFeature.getId(), summaryFeature);
+            }
+
             List<Map<String, Object>> workflowCompatibleFeatures = new ArrayList<>();
             if (coverageResult.getCoveredFeatures() != null) {
                 for (CoveredFeature coveredFeature : coverageResult.getCoveredFeatures()) {
@@ -435,13 +561,11 @@ public class FeatureController {
                     String matchedWith = "";
                     if (coveredFeature.getReferenceFeatureId() != null) {
                         // Find the summary feature by ID to get its checklist
-                        var refFeature = summaryFeatures.stream()
-                            .filter(sf -> coveredFeature.getReferenceFeatureId().equals(sf.getId()))
-                            .findFirst();
+                        SummaryFeature refFeature = summaryFeaturesById.get(coveredFeature.getReferenceFeatureId());
 
-                        if (refFeature.isPresent() && refFeature.get().getChecklist() != null) {
+                        if (refFeature != null && refFeature.getChecklist() != null) {
                             // Join checklist items with comma
-                            matchedWith = String.join(", ", refFeature.get().getChecklist());
+                            matchedWith = String.join(", ", refFeature.getChecklist());
                         }
                     }
                     featureMap.put("matchedWith", matchedWith);
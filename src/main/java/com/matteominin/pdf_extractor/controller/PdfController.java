@@ -10,10 +10,15 @@ import lombok.extern.slf4j.Slf4j;
 import java.util.Map;
 import java.util.HashMap;
 import java.util.List;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.matteominin.pdf_extractor.config.SidecarClient;
 import com.matteominin.pdf_extractor.model.pdf.ExtractedSection;
 import com.matteominin.pdf_extractor.model.pdf.PdfIndex;
+import com.matteominin.pdf_extractor.service.PageTextCache;
 import com.matteominin.pdf_extractor.service.PdfService;
 
 @RestController
@@ -22,13 +27,17 @@ import com.matteominin.pdf_extractor.service.PdfService;
 public class PdfController {
 
     private final PdfService pdfService;
+    private final SidecarClient sidecarClient;
+    private final PageTextCache pageTextCache;
 
     @Value("${app.api.base-url}")
     private String apiUrl;
 
     @Autowired
-    public PdfController(PdfService pdfService) {
+    public PdfController(PdfService pdfService, SidecarClient sidecarClient, PageTextCache pageTextCache) {
         this.pdfService = pdfService;
+        this.sidecarClient = sidecarClient;
+        this.pageTextCache = pageTextCache;
     }
 
     @PostMapping("/extract-index")
@@ -47,7 +56,7 @@ public class PdfController {
             int endPage = Integer.parseInt(request.get("endPage"));
             log.info("Processing PDF index extraction request for: {} from page {} to {}", filePath, startPage, endPage);
 
-            String text = pdfService.extractTextViaPythonApi(filePath, startPage, endPage, true);
+            String text = pdfService.extractPlaceholderText(filePath, startPage, endPage);
 
             Map<String, String> response = new HashMap<>();
             response.put("text", text);
@@ -96,4 +105,60 @@ public class PdfController {
             return ResponseEntity.internalServerError().body(errorResponse);
         }
     }
+
+    /**
+     * Sidecar client usage: calls in flight and waiting for a connection slot, failures and
+     * latency per extraction mode
+     * GET /api/pdf/sidecar-metrics
+     */
+    @GetMapping("/sidecar-metrics")
+    public ResponseEntity<?> getSidecarMetrics() {
+        return ResponseEntity.ok(sidecarClient.getStats());
+    }
+
+    /**
+     * Page text cache size and hit counts
+     * GET /api/pdf/cache
+     */
+    @GetMapping("/cache")
+    public ResponseEntity<?> getCacheStats() {
+        return ResponseEntity.ok(pageTextCache.getStats());
+    }
+
+    /**
+     * Deletes the cached page text of one document, given by path or by SHA-256 of its content
+     * DELETE /api/pdf/cache?filePath=... or ?hash=...
+     */
+    @DeleteMapping("/cache")
+    public ResponseEntity<?> purgeCache(@RequestParam(required = false) String filePath,
+                                        @RequestParam(required = false) String hash) {
+        try {
+            if (hash == null) {
+                if (filePath == null || filePath.isBlank()) {
+                    throw new IllegalArgumentException("Either filePath or hash is required");
+                }
+                Path file = Paths.get(filePath);
+                if (!Files.isRegularFile(file)) {
+                    throw new IllegalArgumentException("PDF file not found, filepath:" + filePath);
+                }
+                hash = pageTextCache.hashOf(file);
+            }
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("hash", hash);
+            response.put("purgedPages", pageTextCache.purge(hash));
+            return ResponseEntity.ok(response);
+
+        } catch (IllegalArgumentException e) {
+            log.warn("Invalid request parameters: {}", e.getMessage());
+            Map<String, String> errorResponse = new HashMap<>();
+            errorResponse.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(errorResponse);
+        } catch (Exception e) {
+            log.error("Error purging page text cache", e);
+            Map<String, String> errorResponse = new HashMap<>();
+            errorResponse.put("error", "Error purging cache: " + e.getMessage());
+            return ResponseEntity.internalServerError().body(errorResponse);
+        }
+    }
 }
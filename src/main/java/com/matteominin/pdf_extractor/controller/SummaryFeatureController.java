@@ -1,6 +1,8 @@
 package com.matteominin.pdf_extractor.controller;
 
 import com.matteominin.pdf_extractor.model.feature.SummaryFeature;
+import com.matteominin.pdf_extractor.model.feature.SummaryFeatureView;
+import com.matteominin.pdf_extractor.model.ingestion.BulkUpsertResult;
 import com.matteominin.pdf_extractor.service.SummaryFeatureService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -32,13 +34,23 @@ public class SummaryFeatureController {
         List<SummaryFeature> summaryFeatures = body.get("summarized_features");
 
         try {
-            List<String> ids = summaryFeatureService.saveSummaryFeatures(summaryFeatures);
+            BulkUpsertResult result = summaryFeatureService.saveSummaryFeatures(summaryFeatures);
             
-            response.put("success", true);
+            response.put("success", result.getFailed() == 0);
             response.put("processed", summaryFeatures.size());
-            response.put("ids", ids);
-            response.put("message", String.format("Successfully saved %d summary features", summaryFeatures.size()));
+            response.put("ids", result.getIds());
+            response.put("inserted", result.getInserted());
+            response.put("matched", result.getMatched());
+            response.put("failed", result.getFailed());
+            response.put("chunks", result.getChunks());
+            response.put("message", String.format("Saved %d of %d summary features: %d inserted, %d matched, %d failed",
+                summaryFeatures.size() - result.getFailed(), summaryFeatures.size(),
+                result.getInserted(), result.getMatched(), result.getFailed()));
             
+            // Some writes failed: the IDs of those items are empty, and retrying the batch is safe
+            if (result.getFailed() > 0) {
+                return ResponseEntity.status(HttpStatus.MULTI_STATUS).body(response);
+            }
             return ResponseEntity.ok(response);
             
         } catch (IllegalArgumentException e) {
@@ -56,14 +68,18 @@ public class SummaryFeatureController {
     }
     
     /**
-     * Get all summary features.
+     * Get all summary features, without embeddings unless requested with include=embedding.
      */
     @GetMapping("/all")
-    public ResponseEntity<?> getAllSummaryFeatures() {
+    public ResponseEntity<?> getAllSummaryFeatures(@RequestParam(defaultValue = "") List<String> include) {
         try {
-            List<SummaryFeature> summaryFeatures = summaryFeatureService.getAllSummaryFeatures();
+            List<SummaryFeatureView> summaryFeatures = summaryFeatureService.getSummaryFeatureViews(include);
             return ResponseEntity.ok(summaryFeatures);
             
+        } catch (IllegalArgumentException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
         } catch (Exception e) {
             logger.error("Error retrieving summary features: {}", e.getMessage(), e);
             Map<String, String> error = new HashMap<>();
@@ -0,0 +1,41 @@
+package com.matteominin.pdf_extractor.model.clustering;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Stored result of a single clustering run: the parameters it was run with,
+ * the corpus version it was computed on, the cluster membership (feature IDs)
+ * and the derived statistics.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ClusteringSnapshot {
+    private String id;
+    private String algorithm;
+    private String parametersKey;
+
+    @Builder.Default
+    private Map<String, Object> parameters = new LinkedHashMap<>();
+
+    private String corpusVersion;
+
+    @Builder.Default
+    private List<List<String>> clusters = new ArrayList<>();
+
+    private int totalFeatures;
+    private int totalClusters;
+    private int largestClusterSize;
+    private double averageClusterSize;
+    private Date createdAt;
+}
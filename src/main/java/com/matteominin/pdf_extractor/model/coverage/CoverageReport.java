@@ -1,5 +1,6 @@
 package com.matteominin.pdf_extractor.model.coverage;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -22,4 +23,7 @@ public class CoverageReport {
     private Date updatedAt;
     private String reportName;
     private String description;
+    // Set on transient reports, which the TTL index removes at that time
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Date expiresAt;
 }
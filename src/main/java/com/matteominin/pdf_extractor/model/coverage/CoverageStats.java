@@ -0,0 +1,28 @@
+package com.matteominin.pdf_extractor.model.coverage;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Coverage percentage statistics of the reports with one name in one time bucket.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CoverageStats {
+    private String reportName;
+    private String bucket;
+    private long reports;
+    private double averageCoverage;
+    private double minCoverage;
+    private double maxCoverage;
+    private double medianCoverage;
+    private double p90Coverage;
+    // Average coverage minus the previous bucket's, for the same report name
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Double change;
+}
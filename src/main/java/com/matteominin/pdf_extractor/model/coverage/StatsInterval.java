@@ -0,0 +1,70 @@
+package com.matteominin.pdf_extractor.model.coverage;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.temporal.IsoFields;
+import java.util.Date;
+
+/**
+ * Time bucket of the coverage statistics. Buckets are labelled in UTC with formats that sort
+ * chronologically: {@code 2024-05-17}, {@code 2024-W20} (ISO week) and {@code 2024-05}.
+ */
+public enum StatsInterval {
+    DAY("%Y-%m-%d", DateTimeFormatter.ofPattern("yyyy-MM-dd")),
+    WEEK("%G-W%V", new DateTimeFormatterBuilder()
+        .appendValue(IsoFields.WEEK_BASED_YEAR, 4)
+        .appendLiteral("-W")
+        .appendValue(IsoFields.WEEK_OF_WEEK_BASED_YEAR, 2)
+        .toFormatter()),
+    MONTH("%Y-%m", DateTimeFormatter.ofPattern("yyyy-MM"));
+
+    // $dateToString format
+    private final String mongoFormat;
+    private final DateTimeFormatter formatter;
+
+    StatsInterval(String mongoFormat, DateTimeFormatter formatter) {
+        this.mongoFormat = mongoFormat;
+        this.formatter = formatter.withZone(ZoneOffset.UTC);
+    }
+
+    public String getMongoFormat() {
+        return mongoFormat;
+    }
+
+    public String bucketOf(Date date) {
+        return formatter.format(date.toInstant());
+    }
+
+    /**
+     * Position of a bucket label on this interval's grid, so that consecutive buckets differ by
+     * one and the distance between two buckets counts the empty ones in between.
+     */
+    public long indexOf(String bucket) {
+        return switch (this) {
+            case DAY -> LocalDate.parse(bucket).toEpochDay();
+            case WEEK -> {
+                LocalDate monday = LocalDate.of(Integer.parseInt(bucket.substring(0, 4)), 1, 4)
+                    .with(IsoFields.WEEK_OF_WEEK_BASED_YEAR, Long.parseLong(bucket.substring(6)))
+                    .with(DayOfWeek.MONDAY);
+                yield Math.floorDiv(monday.toEpochDay(), 7);
+            }
+            case MONTH -> {
+                YearMonth month = YearMonth.parse(bucket);
+                yield month.getYear() * 12L + month.getMonthValue() - 1;
+            }
+        };
+    }
+
+    public static StatsInterval of(String name) {
+        for (StatsInterval interval : values()) {
+            if (interval.name().equalsIgnoreCase(name)) {
+                return interval;
+            }
+        }
+        throw new IllegalArgumentException("Unknown interval: " + name + " (expected day, week or month)");
+    }
+}
@@ -0,0 +1,25 @@
+package com.matteominin.pdf_extractor.model.coverage;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Date;
+
+/**
+ * How often a reference feature was left uncovered across the matching reports.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class UncoveredFeatureStats {
+    private String referenceFeatureId;
+    private long reports;
+    private Date lastSeenAt;
+    // Name of the reference feature, when it still exists
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String feature;
+}
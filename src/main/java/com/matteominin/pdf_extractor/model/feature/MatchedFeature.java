@@ -1,5 +1,6 @@
 package com.matteominin.pdf_extractor.model.feature;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -13,4 +14,7 @@ public class MatchedFeature {
     private String feature;
     private String description;
     private String sectionText;
+    // Hash of the section text in the evidence blob store; the text itself is loaded on demand
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String sectionTextRef;
 }
@@ -0,0 +1,29 @@
+package com.matteominin.pdf_extractor.model.feature;
+
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Listing read model of a {@link SummaryFeature}; the embedding is only filled when
+ * explicitly requested and is left out of the JSON otherwise.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class SummaryFeatureView {
+    private String id;
+    private String feature;
+    private String description;
+    private String count;
+    private List<String> checklist;
+    private String example;
+    private List<Double> embedding;
+}
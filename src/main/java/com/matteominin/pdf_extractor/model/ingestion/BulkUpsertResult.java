@@ -0,0 +1,37 @@
+package com.matteominin.pdf_extractor.model.ingestion;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Result of an idempotent bulk upsert. {@code ids} follows the order of the input list,
+ * with an empty string for items whose chunk operation failed.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkUpsertResult {
+    @Builder.Default
+    private List<String> ids = new ArrayList<>();
+
+    @Builder.Default
+    private List<ChunkResult> chunks = new ArrayList<>();
+
+    public int getInserted() {
+        return chunks.stream().mapToInt(ChunkResult::getInserted).sum();
+    }
+
+    public int getMatched() {
+        return chunks.stream().mapToInt(ChunkResult::getMatched).sum();
+    }
+
+    public int getFailed() {
+        return chunks.stream().mapToInt(ChunkResult::getFailed).sum();
+    }
+}
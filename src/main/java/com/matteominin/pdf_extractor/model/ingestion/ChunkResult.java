@@ -0,0 +1,29 @@
+package com.matteominin.pdf_extractor.model.ingestion;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Outcome of one bulk upsert chunk: how many documents were new, how many already existed
+ * (matched by content hash) and how many failed, with the server error messages.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChunkResult {
+    private int index;
+    private int size;
+    private int inserted;
+    private int matched;
+    private int modified;
+    private int failed;
+
+    @Builder.Default
+    private List<String> errors = new ArrayList<>();
+}
@@ -0,0 +1,36 @@
+package com.matteominin.pdf_extractor.model.pdf;
+
+import java.util.Date;
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Listing read model of a {@link Feature}. The heavy fields ({@code embedding},
+ * {@code section_text}) are only filled when explicitly requested and are left
+ * out of the JSON otherwise.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class FeatureView {
+    private String id;
+    private String feature;
+    private String description;
+    private String category;
+    private String evidence;
+    private Double confidence;
+    private String source_title;
+    private String filePath;
+    private String section_text;
+    private List<Double> embedding;
+    private Date createdAt;
+    private Date updatedAt;
+}
@@ -0,0 +1,23 @@
+package com.matteominin.pdf_extractor.repository;
+
+import com.matteominin.pdf_extractor.model.clustering.ClusteringSnapshot;
+
+/**
+ * Storage of clustering results, so that a clustering is not re-run on an unchanged corpus.
+ */
+public interface ClusteringSnapshotRepository {
+
+    /**
+     * Find the most recent snapshot computed with the given parameters on the given corpus version.
+     *
+     * @param parametersKey canonical key of the clustering parameters
+     * @param corpusVersion version of the feature corpus
+     * @return the snapshot or null if none was stored
+     */
+    ClusteringSnapshot findLatest(String parametersKey, String corpusVersion);
+
+    /**
+     * @return ID of the stored snapshot
+     */
+    String save(ClusteringSnapshot snapshot);
+}
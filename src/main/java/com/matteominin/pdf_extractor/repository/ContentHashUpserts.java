@@ -0,0 +1,169 @@
+package com.matteominin.pdf_extractor.repository;
+
+import com.matteominin.pdf_extractor.model.ingestion.BulkUpsertResult;
+import com.matteominin.pdf_extractor.model.ingestion.ChunkResult;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.MongoCommandException;
+import com.mongodb.MongoNamespace;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.WriteModel;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Idempotent bulk writes keyed by the {@code contentHash} field. Each document is upserted:
+ * new content is inserted, content already stored only has its fields refreshed, and
+ * {@code createdAt} is kept from the first insertion. {@code updatedAt} only moves when a
+ * field actually changed, so saving the same documents again writes nothing and leaves the
+ * corpus version alone. Writes are sent in unordered chunks, so a failing document does not
+ * abort the rest and a failed run can simply be retried.
+ * <p>
+ * A unique index on {@code contentHash} is ensured before the first write to a collection;
+ * without it, concurrent upserts of the same content could both insert.
+ */
+final class ContentHashUpserts {
+
+    static final String CONTENT_HASH = "contentHash";
+
+    private static final Logger logger = LoggerFactory.getLogger(ContentHashUpserts.class);
+
+    // Documents written before content hashes existed are left out of the unique index
+    private static final Document HAS_CONTENT_HASH = new Document(CONTENT_HASH, new Document("$type", "string"));
+
+    private static final Set<MongoNamespace> indexedCollections = ConcurrentHashMap.newKeySet();
+
+    private ContentHashUpserts() {
+    }
+
+    /**
+     * @param collection target collection
+     * @param docs documents to store, each with a {@code contentHash} field
+     * @param chunkSize number of documents per bulk write
+     * @return IDs in input order and per-chunk counts
+     */
+    static BulkUpsertResult upsert(MongoCollection<Document> collection, List<Document> docs, int chunkSize) {
+        ensureIndex(collection);
+        BulkUpsertResult result = new BulkUpsertResult();
+        int size = Math.max(1, chunkSize);
+
+        for (int start = 0; start < docs.size(); start += size) {
+            List<Document> chunk = docs.subList(start, Math.min(start + size, docs.size()));
+            result.getChunks().add(upsertChunk(collection, chunk, start / size));
+            result.getIds().addAll(resolveIds(collection, chunk));
+        }
+        return result;
+    }
+
+    // Created once per collection and process; createIndex is a no-op when the index exists
+    private static void ensureIndex(MongoCollection<Document> collection) {
+        if (indexedCollections.contains(collection.getNamespace())) {
+            return;
+        }
+        try {
+            collection.createIndex(new Document(CONTENT_HASH, 1),
+                new IndexOptions().name("contentHash_1").unique(true).partialFilterExpression(HAS_CONTENT_HASH));
+        } catch (MongoCommandException e) {
+            // Duplicate hashes already stored: upserts still work, but cannot rule out new duplicates
+            logger.warn("Cannot create unique index contentHash_1 on {}: {}", collection.getNamespace(),
+                e.getErrorMessage());
+        }
+        indexedCollections.add(collection.getNamespace());
+    }
+
+    private static ChunkResult upsertChunk(MongoCollection<Document> collection, List<Document> chunk, int index) {
+        List<WriteModel<Document>> writes = new ArrayList<>(chunk.size());
+        for (Document doc : chunk) {
+            writes.add(new UpdateOneModel<>(
+                new Document(CONTENT_HASH, doc.getString(CONTENT_HASH)),
+                upsertPipeline(doc),
+                new UpdateOptions().upsert(true)));
+        }
+
+        ChunkResult.ChunkResultBuilder chunkResult = ChunkResult.builder().index(index).size(chunk.size());
+        try {
+            BulkWriteResult written = collection.bulkWrite(writes, new BulkWriteOptions().ordered(false));
+            return withCounts(chunkResult, written).build();
+        } catch (MongoBulkWriteException e) {
+            // Unordered: everything but the reported errors was applied
+            List<String> errors = e.getWriteErrors().stream()
+                .map(error -> "[" + error.getIndex() + "] " + error.getMessage())
+                .toList();
+            logger.warn("Bulk upsert chunk {} had {} failed writes", index, errors.size());
+            return withCounts(chunkResult, e.getWriteResult())
+                .failed(e.getWriteErrors().size())
+                .errors(new ArrayList<>(errors))
+                .build();
+        }
+    }
+
+    /**
+     * Update pipeline that keeps {@code createdAt} once set and only takes the new
+     * {@code updatedAt} when one of the other fields differs from the stored value, so a
+     * matched upsert of unchanged content modifies nothing. Values are wrapped in
+     * {@code $literal}, as strings starting with {@code $} would otherwise read as field paths.
+     */
+    private static List<Document> upsertPipeline(Document doc) {
+        Document fields = new Document(doc);
+        Object createdAt = fields.remove("createdAt");
+        Object updatedAt = fields.remove("updatedAt");
+
+        List<Document> unchanged = new ArrayList<>();
+        Document values = new Document();
+        fields.forEach((name, value) -> {
+            unchanged.add(new Document("$eq", List.of("$" + name, literal(value))));
+            values.append(name, literal(value));
+        });
+
+        Document timestamps = new Document();
+        if (createdAt != null) {
+            timestamps.append("createdAt", new Document("$ifNull", List.of("$createdAt", literal(createdAt))));
+        }
+        if (updatedAt != null) {
+            timestamps.append("updatedAt",
+                new Document("$cond", List.of(new Document("$and", unchanged), "$updatedAt", literal(updatedAt))));
+        }
+        // Timestamps first, so the comparison sees the stored fields
+        return timestamps.isEmpty()
+            ? List.of(new Document("$set", values))
+            : List.of(new Document("$set", timestamps), new Document("$set", values));
+    }
+
+    private static Document literal(Object value) {
+        return new Document("$literal", value);
+    }
+
+    private static ChunkResult.ChunkResultBuilder withCounts(ChunkResult.ChunkResultBuilder chunkResult,
+                                                             BulkWriteResult written) {
+        return chunkResult
+            .inserted(written.getUpserts().size())
+            .matched(written.getMatchedCount())
+            .modified(written.getModifiedCount());
+    }
+
+    /**
+     * Looks up the IDs of a chunk by content hash, which covers both inserted and matched
+     * documents; documents whose write failed get an empty ID.
+     */
+    private static List<String> resolveIds(MongoCollection<Document> collection, List<Document> chunk) {
+        List<String> hashes = chunk.stream().map(doc -> doc.getString(CONTENT_HASH)).toList();
+        Map<String, String> idsByHash = new HashMap<>();
+        collection.find(new Document(CONTENT_HASH, new Document("$in", hashes)))
+            .projection(new Document("_id", 1).append(CONTENT_HASH, 1))
+            .forEach(doc -> idsByHash.put(doc.getString(CONTENT_HASH), doc.getObjectId("_id").toString()));
+
+        return hashes.stream().map(hash -> idsByHash.getOrDefault(hash, "")).toList();
+    }
+}
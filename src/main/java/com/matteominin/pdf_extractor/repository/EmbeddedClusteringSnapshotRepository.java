@@ -0,0 +1,61 @@
+package com.matteominin.pdf_extractor.repository;
+
+import com.matteominin.pdf_extractor.config.EmbeddedStore;
+import com.matteominin.pdf_extractor.model.clustering.ClusteringSnapshot;
+import jakarta.annotation.PostConstruct;
+import org.bson.types.ObjectId;
+import org.h2.mvstore.MVMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+
+import java.util.Date;
+
+/**
+ * Clustering snapshots in the embedded store, keyed by parameters and corpus version so
+ * that the latest snapshot for a run is a single lookup.
+ */
+@Repository
+@Profile("embedded")
+public class EmbeddedClusteringSnapshotRepository implements ClusteringSnapshotRepository {
+
+    private static final Logger logger = LoggerFactory.getLogger(EmbeddedClusteringSnapshotRepository.class);
+
+    @Autowired
+    private EmbeddedStore store;
+
+    // parametersKey + corpusVersion -> latest snapshot JSON
+    private MVMap<String, byte[]> snapshots;
+
+    @PostConstruct
+    public void initMaps() {
+        snapshots = store.openMap("clustering_snapshots");
+    }
+
+    @Override
+    public ClusteringSnapshot findLatest(String parametersKey, String corpusVersion) {
+        byte[] json = snapshots.get(key(parametersKey, corpusVersion));
+        return json != null ? store.fromJson(json, ClusteringSnapshot.class) : null;
+    }
+
+    @Override
+    public String save(ClusteringSnapshot snapshot) {
+        try {
+            snapshot.setCreatedAt(new Date());
+            snapshot.setId(new ObjectId().toHexString());
+            snapshots.put(key(snapshot.getParametersKey(), snapshot.getCorpusVersion()), store.toJson(snapshot));
+            store.commit();
+            logger.debug("Clustering snapshot saved successfully with ID: {}", snapshot.getId());
+            return snapshot.getId();
+        } catch (Exception e) {
+            logger.error("Error saving clustering snapshot: {}", e.getMessage(), e);
+            throw new RuntimeException("Database save operation failed", e);
+        }
+    }
+
+    private static String key(String parametersKey, String corpusVersion) {
+        return parametersKey + "\u0000" + corpusVersion;
+    }
+}
@@ -0,0 +1,312 @@
+package com.matteominin.pdf_extractor.repository;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.matteominin.pdf_extractor.config.EmbeddedStore;
+import com.matteominin.pdf_extractor.model.coverage.CoverageReport;
+import com.matteominin.pdf_extractor.model.coverage.CoverageStats;
+import com.matteominin.pdf_extractor.model.coverage.CoveredFeature;
+import com.matteominin.pdf_extractor.model.coverage.StatsInterval;
+import com.matteominin.pdf_extractor.model.coverage.UncoveredFeature;
+import com.matteominin.pdf_extractor.model.coverage.UncoveredFeatureStats;
+import com.matteominin.pdf_extractor.model.feature.MatchedFeature;
+import com.matteominin.pdf_extractor.util.ContentHash;
+import jakarta.annotation.PostConstruct;
+import org.bson.types.ObjectId;
+import org.h2.mvstore.MVMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Repository;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Coverage reports in the embedded store. As with MongoDB, matched section texts are kept
+ * once per distinct text in a map of their own, keyed by hash, and referenced from reports.
+ * There is no TTL monitor: transient reports past their expiry are hidden from reads and
+ * deleted by a periodic sweep.
+ */
+@Repository
+@Profile("embedded")
+public class EmbeddedCoverageReportRepository implements CoverageReportRepository {
+
+    private static final Logger logger = LoggerFactory.getLogger(EmbeddedCoverageReportRepository.class);
+
+    @Autowired
+    private EmbeddedStore store;
+
+    // ID -> report JSON without section texts
+    private MVMap<String, byte[]> reports;
+    // SHA-256 -> section text
+    private MVMap<String, String> evidence;
+    // ID -> archived report JSON; pages are compressed by the store
+    private MVMap<String, byte[]> archive;
+
+    @PostConstruct
+    public void initMaps() {
+        reports = store.openMap("coverage_reports");
+        evidence = store.openMap("evidence_texts");
+        archive = store.openMap("coverage_reports_archive");
+    }
+
+    @Override
+    public List<CoverageReport> findAll() {
+        Date now = new Date();
+        List<CoverageReport> result = new ArrayList<>();
+        reports.keyIterator(null).forEachRemaining(id -> {
+            CoverageReport report = read(reports, id);
+            if (!isExpired(report, now)) {
+                result.add(report);
+            }
+        });
+        return result;
+    }
+
+    @Override
+    public CoverageReport findById(String id) {
+        if (id == null) {
+            return null;
+        }
+        if (reports.containsKey(id)) {
+            CoverageReport report = read(reports, id);
+            return isExpired(report, new Date()) ? null : report;
+        }
+        return archive.containsKey(id) ? read(archive, id) : null;
+    }
+
+    @Override
+    public String save(CoverageReport coverageReport) {
+        saveAll(List.of(coverageReport));
+        return coverageReport.getId();
+    }
+
+    @Override
+    public int saveAll(List<CoverageReport> coverageReports) {
+        try {
+            Date now = new Date();
+            for (CoverageReport coverageReport : coverageReports) {
+                if (coverageReport.getId() == null) {
+                    coverageReport.setId(new ObjectId().toHexString());
+                }
+                if (coverageReport.getCreatedAt() == null) {
+                    coverageReport.setCreatedAt(now);
+                }
+                coverageReport.setUpdatedAt(now);
+                storeSectionTexts(coverageReport);
+                reports.put(coverageReport.getId(), toJson(coverageReport));
+            }
+            store.commit();
+            logger.debug("Saved {} coverage reports", coverageReports.size());
+            return coverageReports.size();
+        } catch (Exception e) {
+            logger.error("Error saving coverage reports: {}", e.getMessage(), e);
+            throw new RuntimeException("Database save operation failed", e);
+        }
+    }
+
+    @Override
+    public void loadSectionTexts(CoverageReport report) {
+        for (MatchedFeature matched : matchedFeatures(report)) {
+            if (matched.getSectionText() == null && matched.getSectionTextRef() != null) {
+                matched.setSectionText(evidence.get(matched.getSectionTextRef()));
+            }
+        }
+    }
+
+    /**
+     * Deletes the transient reports past their expiry, which reads already skip. Runs whether
+     * or not archival is enabled.
+     *
+     * @return number of reports deleted
+     */
+    @Scheduled(fixedDelayString = "${app.coverage.retention.expiry-sweep-ms:3600000}")
+    public synchronized int deleteExpired() {
+        try {
+            Date now = new Date();
+            int expired = 0;
+            for (String id : new ArrayList<>(reports.keyList())) {
+                if (isExpired(read(reports, id), now)) {
+                    reports.remove(id);
+                    expired++;
+                }
+            }
+            if (expired > 0) {
+                store.commit();
+                logger.info("Deleted {} expired coverage reports", expired);
+            }
+            return expired;
+        } catch (Exception e) {
+            logger.error("Error deleting expired coverage reports: {}", e.getMessage(), e);
+            throw new RuntimeException("Database delete operation failed", e);
+        }
+    }
+
+    /**
+     * Moves the reports to the archive map whole: the embedded statistics scan both maps, so no
+     * separate summaries are kept. Transient reports past their expiry are deleted on the same
+     * pass.
+     */
+    @Override
+    public synchronized int archiveOlderThan(Date cutoff, int batchSize) {
+        try {
+            Date now = new Date();
+            int archived = 0;
+            int expired = 0;
+            int pending = 0;
+            for (String id : new ArrayList<>(reports.keyList())) {
+                CoverageReport report = read(reports, id);
+                if (report.getExpiresAt() != null) {
+                    if (isExpired(report, now)) {
+                        reports.remove(id);
+                        expired++;
+                    }
+                } else if (report.getCreatedAt() != null && report.getCreatedAt().before(cutoff)) {
+                    archive.put(id, reports.get(id));
+                    reports.remove(id);
+                    archived++;
+                } else {
+                    continue;
+                }
+                if (++pending >= batchSize) {
+                    store.commit();
+                    pending = 0;
+                }
+            }
+            store.commit();
+            logger.debug("Archived {} coverage reports created before {}, deleted {} expired", archived, cutoff, expired);
+            return archived;
+        } catch (Exception e) {
+            logger.error("Error archiving coverage reports: {}", e.getMessage(), e);
+            throw new RuntimeException("Database archive operation failed", e);
+        }
+    }
+
+    // No query engine here: the reports are scanned, with the same grouping as the MongoDB pipeline
+    @Override
+    public List<CoverageStats> aggregateCoverageStats(String reportName, Date from, Date to, StatsInterval interval) {
+        Map<List<String>, List<Double>> valuesByGroup = new TreeMap<>(
+            Comparator.comparing((List<String> key) -> key.get(0), Comparator.nullsFirst(Comparator.naturalOrder()))
+                .thenComparing(key -> key.get(1)));
+        for (CoverageReport report : findMatching(reportName, from, to)) {
+            if (report.getCoverage() == null || report.getCoverage().getCoveragePercentage() == null) {
+                continue;
+            }
+            valuesByGroup.computeIfAbsent(Arrays.asList(report.getReportName(), interval.bucketOf(report.getCreatedAt())),
+                key -> new ArrayList<>()).add(report.getCoverage().getCoveragePercentage());
+        }
+
+        List<CoverageStats> stats = new ArrayList<>();
+        valuesByGroup.forEach((key, values) -> {
+            Collections.sort(values);
+            stats.add(CoverageStats.builder()
+                .reportName(key.get(0))
+                .bucket(key.get(1))
+                .reports(values.size())
+                .averageCoverage(values.stream().mapToDouble(Double::doubleValue).average().orElse(0.0))
+                .minCoverage(values.get(0))
+                .maxCoverage(values.get(values.size() - 1))
+                .medianCoverage(CoverageReportRepository.percentile(values, 0.5))
+                .p90Coverage(CoverageReportRepository.percentile(values, 0.9))
+                .build());
+        });
+        return stats;
+    }
+
+    @Override
+    public List<UncoveredFeatureStats> findTopUncoveredFeatures(String reportName, Date from, Date to, int limit) {
+        Map<String, UncoveredFeatureStats> statsById = new HashMap<>();
+        for (CoverageReport report : findMatching(reportName, from, to)) {
+            if (report.getCoverage() == null || report.getCoverage().getUncoveredFeatures() == null) {
+                continue;
+            }
+            for (UncoveredFeature uncovered : report.getCoverage().getUncoveredFeatures()) {
+                UncoveredFeatureStats stats = statsById.computeIfAbsent(uncovered.getReferenceFeatureId(),
+                    id -> UncoveredFeatureStats.builder().referenceFeatureId(id).build());
+                stats.setReports(stats.getReports() + 1);
+                if (stats.getLastSeenAt() == null || report.getCreatedAt().after(stats.getLastSeenAt())) {
+                    stats.setLastSeenAt(report.getCreatedAt());
+                }
+            }
+        }
+        return statsById.values().stream()
+            .sorted(Comparator.comparingLong(UncoveredFeatureStats::getReports).reversed()
+                .thenComparing(UncoveredFeatureStats::getReferenceFeatureId, Comparator.nullsFirst(Comparator.naturalOrder())))
+            .limit(limit)
+            .toList();
+    }
+
+    private List<CoverageReport> findMatching(String reportName, Date from, Date to) {
+        List<CoverageReport> all = findAll();
+        archive.keyIterator(null).forEachRemaining(id -> all.add(read(archive, id)));
+
+        List<CoverageReport> matching = new ArrayList<>();
+        for (CoverageReport report : all) {
+            if ((reportName == null || reportName.equals(report.getReportName()))
+                    && report.getCreatedAt() != null
+                    && (from == null || !report.getCreatedAt().before(from))
+                    && (to == null || report.getCreatedAt().before(to))) {
+                matching.add(report);
+            }
+        }
+        return matching;
+    }
+
+    private void storeSectionTexts(CoverageReport report) {
+        for (MatchedFeature matched : matchedFeatures(report)) {
+            String text = matched.getSectionText();
+            if (text != null && !text.isEmpty()) {
+                String hash = ContentHash.of(text.getBytes(StandardCharsets.UTF_8));
+                evidence.putIfAbsent(hash, text);
+                matched.setSectionTextRef(hash);
+            }
+        }
+    }
+
+    private List<MatchedFeature> matchedFeatures(CoverageReport report) {
+        List<MatchedFeature> matchedFeatures = new ArrayList<>();
+        if (report.getCoverage() != null && report.getCoverage().getCoveredFeatures() != null) {
+            for (CoveredFeature coveredFeature : report.getCoverage().getCoveredFeatures()) {
+                if (coveredFeature.getMatchedFeature() != null) {
+                    matchedFeatures.add(coveredFeature.getMatchedFeature());
+                }
+            }
+        }
+        return matchedFeatures;
+    }
+
+    // The section texts stay on the in-memory report but are not part of the stored record
+    private byte[] toJson(CoverageReport report) {
+        ObjectNode node = store.toTree(report);
+        node.remove("id");
+        JsonNode coveredFeatures = node.path("coverage").path("coveredFeatures");
+        for (JsonNode coveredFeature : coveredFeatures) {
+            JsonNode matched = coveredFeature.path("matchedFeature");
+            if (matched instanceof ObjectNode matchedNode) {
+                matchedNode.remove("sectionText");
+            }
+        }
+        return store.toJson(node);
+    }
+
+    private static boolean isExpired(CoverageReport report, Date now) {
+        return report.getExpiresAt() != null && report.getExpiresAt().before(now);
+    }
+
+    private CoverageReport read(MVMap<String, byte[]> map, String id) {
+        CoverageReport report = store.fromJson(map.get(id), CoverageReport.class);
+        report.setId(id);
+        return report;
+    }
+}
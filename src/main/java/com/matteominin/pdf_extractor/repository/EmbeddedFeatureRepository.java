@@ -0,0 +1,283 @@
+package com.matteominin.pdf_extractor.repository;
+
+import com.matteominin.pdf_extractor.config.EmbeddedStore;
+import com.matteominin.pdf_extractor.model.ingestion.BulkUpsertResult;
+import com.matteominin.pdf_extractor.model.ingestion.ChunkResult;
+import com.matteominin.pdf_extractor.model.pdf.Feature;
+import com.matteominin.pdf_extractor.model.pdf.FeatureView;
+import jakarta.annotation.PostConstruct;
+import org.bson.types.ObjectId;
+import org.h2.mvstore.MVMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Features in the embedded store. IDs are ObjectIds, so the key order of the maps is the
+ * insertion order, like {@code _id} order in MongoDB.
+ */
+@Repository
+@Profile("embedded")
+public class EmbeddedFeatureRepository implements FeatureRepository {
+
+    private static final Logger logger = LoggerFactory.getLogger(EmbeddedFeatureRepository.class);
+
+    private static final String VERSION_KEY = "features.version";
+
+    @Value("${app.mongodb.bulk.chunk-size:500}")
+    private int bulkChunkSize;
+
+    @Autowired
+    private EmbeddedStore store;
+
+    // ID -> feature JSON without embedding
+    private MVMap<String, byte[]> features;
+    // ID -> embedding
+    private MVMap<String, double[]> embeddings;
+    // content hash -> ID
+    private MVMap<String, String> contentHashes;
+    // counters, incremented on every write so the corpus version changes
+    private MVMap<String, Long> meta;
+
+    @PostConstruct
+    public void initMaps() {
+        features = store.openMap("features");
+        embeddings = store.openMap("feature_embeddings");
+        contentHashes = store.openMap("feature_hashes");
+        meta = store.openMap("meta");
+    }
+
+    @Override
+    public List<Feature> findAll() {
+        try (Stream<Feature> stream = streamAll()) {
+            return stream.toList();
+        }
+    }
+
+    @Override
+    public List<Feature> findAllWithEmbeddings() {
+        try (Stream<Feature> stream = streamAllWithEmbeddings()) {
+            return stream.toList();
+        }
+    }
+
+    @Override
+    public Stream<Feature> streamAllWithEmbeddings() {
+        return streamAllWithEmbeddings(0, null);
+    }
+
+    // Records are read from the local file on demand, so the batch size does not apply
+    @Override
+    public Stream<Feature> streamAllWithEmbeddings(int batchSize, List<String> fields) {
+        return stream(embeddings.keyIterator(null))
+            .map(id -> read(id, fields))
+            .filter(Objects::nonNull);
+    }
+
+    @Override
+    public Stream<Feature> streamAll(int batchSize, List<String> fields) {
+        return stream(features.keyIterator(null))
+            .map(id -> read(id, fields))
+            .filter(Objects::nonNull);
+    }
+
+    @Override
+    public Stream<Feature> streamAll() {
+        return streamAll(0, null);
+    }
+
+    @Override
+    public Stream<FeatureView> streamViews(Collection<String> include, String after, int limit) {
+        List<String> fields = new ArrayList<>(VIEW_FIELDS);
+        fields.addAll(include);
+
+        String from = after != null ? features.higherKey(after) : null;
+        Iterator<String> ids = after != null && from == null
+            ? Collections.emptyIterator()
+            : features.keyIterator(from);
+        Stream<FeatureView> views = stream(ids)
+            .map(id -> read(id, fields))
+            .filter(Objects::nonNull)
+            .map(this::convertToView);
+        return limit > 0 ? views.limit(limit) : views;
+    }
+
+    @Override
+    public List<Feature> findByIds(Collection<String> ids) {
+        List<String> fields = new ArrayList<>(FEATURE_FIELDS);
+        fields.remove("embedding");
+        return ids.stream()
+            .map(id -> read(id, fields))
+            .filter(Objects::nonNull)
+            .toList();
+    }
+
+    @Override
+    public String getCorpusVersion() {
+        return "embedded:" + features.size() + ":" + meta.getOrDefault(VERSION_KEY, 0L);
+    }
+
+    @Override
+    public synchronized String saveFeature(Feature feature) {
+        try {
+            feature.setCreatedAt(new Date());
+            feature.setUpdatedAt(new Date());
+            feature.setId(new ObjectId().toHexString());
+            write(feature);
+            bumpVersion();
+            store.commit();
+            logger.debug("Feature saved successfully with ID: {}", feature.getId());
+            return feature.getId();
+        } catch (Exception e) {
+            logger.error("Error saving feature: {}", e.getMessage(), e);
+            throw new RuntimeException("Database save operation failed", e);
+        }
+    }
+
+    /**
+     * Upserts the features by content hash, as the MongoDB repository does: new features are
+     * inserted, known ones have their fields refreshed and keep their ID and creation time.
+     * Known features whose fields are unchanged are not rewritten, so their update time and
+     * the corpus version stay as they were.
+     */
+    @Override
+    public synchronized BulkUpsertResult saveFeatureList(List<Feature> featureList) {
+        try {
+            BulkUpsertResult result = new BulkUpsertResult();
+            Date now = new Date();
+            int size = Math.max(1, bulkChunkSize);
+            int changed = 0;
+
+            for (int start = 0; start < featureList.size(); start += size) {
+                List<Feature> chunk = featureList.subList(start, Math.min(start + size, featureList.size()));
+                int inserted = 0;
+                int modified = 0;
+                for (Feature feature : chunk) {
+                    String hash = FeatureRepository.contentHash(feature);
+                    String existingId = contentHashes.get(hash);
+                    if (existingId != null && features.containsKey(existingId)) {
+                        Feature existing = store.fromJson(features.get(existingId), Feature.class);
+                        feature.setId(existingId);
+                        feature.setCreatedAt(existing.getCreatedAt());
+                        feature.setUpdatedAt(existing.getUpdatedAt());
+                        if (isUnchanged(feature)) {
+                            result.getIds().add(existingId);
+                            continue;
+                        }
+                        modified++;
+                    } else {
+                        feature.setId(new ObjectId().toHexString());
+                        feature.setCreatedAt(now);
+                        contentHashes.put(hash, feature.getId());
+                        inserted++;
+                    }
+                    feature.setUpdatedAt(now);
+                    write(feature);
+                    result.getIds().add(feature.getId());
+                }
+                result.getChunks().add(ChunkResult.builder()
+                    .index(start / size)
+                    .size(chunk.size())
+                    .inserted(inserted)
+                    .matched(chunk.size() - inserted)
+                    .modified(modified)
+                    .build());
+                changed += inserted + modified;
+            }
+            if (changed > 0) {
+                bumpVersion();
+            }
+            store.commit();
+            logger.debug("Batch saved {} features: {} inserted, {} matched", featureList.size(),
+                result.getInserted(), result.getMatched());
+            return result;
+        } catch (Exception e) {
+            logger.error("Error saving feature list: {}", e.getMessage(), e);
+            throw new RuntimeException("Database batch save operation failed", e);
+        }
+    }
+
+    // Whether the stored record already holds the feature, given its stored ID and timestamps
+    private boolean isUnchanged(Feature feature) {
+        double[] embedding = embeddings.get(feature.getId());
+        double[] newEmbedding = feature.getEmbedding() != null && !feature.getEmbedding().isEmpty()
+            ? EmbeddedStore.toArray(feature.getEmbedding())
+            : null;
+        return Arrays.equals(features.get(feature.getId()), store.toJson(feature, "id", "embedding"))
+            && Arrays.equals(embedding, newEmbedding);
+    }
+
+    private void write(Feature feature) {
+        features.put(feature.getId(), store.toJson(feature, "id", "embedding"));
+        if (feature.getEmbedding() != null && !feature.getEmbedding().isEmpty()) {
+            embeddings.put(feature.getId(), EmbeddedStore.toArray(feature.getEmbedding()));
+        } else {
+            embeddings.remove(feature.getId());
+        }
+    }
+
+    private void bumpVersion() {
+        meta.merge(VERSION_KEY, 1L, Long::sum);
+    }
+
+    /**
+     * @param fields fields to read, or null for all; only the heavy fields (embedding, section
+     *               text) are actually skipped, the others are in the same record
+     */
+    private Feature read(String id, List<String> fields) {
+        byte[] json = features.get(id);
+        if (json == null) {
+            return null;
+        }
+        Feature feature = store.fromJson(json, Feature.class);
+        feature.setId(id);
+        if (fields != null && !fields.contains("section_text")) {
+            feature.setSection_text(null);
+        }
+        if (fields == null || fields.contains("embedding")) {
+            double[] embedding = embeddings.get(id);
+            if (embedding != null) {
+                feature.setEmbedding(EmbeddedStore.toList(embedding));
+            }
+        }
+        return feature;
+    }
+
+    private FeatureView convertToView(Feature feature) {
+        return FeatureView.builder()
+            .id(feature.getId())
+            .feature(feature.getFeature())
+            .description(feature.getDescription())
+            .category(feature.getCategory())
+            .evidence(feature.getEvidence())
+            .confidence(feature.getConfidence())
+            .source_title(feature.getSource_title())
+            .filePath(feature.getFilePath())
+            .section_text(feature.getSection_text())
+            .embedding(feature.getEmbedding())
+            .createdAt(feature.getCreatedAt())
+            .updatedAt(feature.getUpdatedAt())
+            .build();
+    }
+
+    private static Stream<String> stream(Iterator<String> ids) {
+        return StreamSupport.stream(
+            Spliterators.spliteratorUnknownSize(ids, Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+}
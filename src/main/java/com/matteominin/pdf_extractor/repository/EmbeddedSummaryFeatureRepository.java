@@ -0,0 +1,179 @@
+package com.matteominin.pdf_extractor.repository;
+
+import com.matteominin.pdf_extractor.config.EmbeddedStore;
+import com.matteominin.pdf_extractor.model.feature.SummaryFeature;
+import com.matteominin.pdf_extractor.model.feature.SummaryFeatureView;
+import com.matteominin.pdf_extractor.model.ingestion.BulkUpsertResult;
+import com.matteominin.pdf_extractor.model.ingestion.ChunkResult;
+import jakarta.annotation.PostConstruct;
+import org.bson.types.ObjectId;
+import org.h2.mvstore.MVMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Summary features in the embedded store, with the same layout as
+ * {@link EmbeddedFeatureRepository}: JSON records and primitive embeddings in separate maps.
+ */
+@Repository
+@Profile("embedded")
+public class EmbeddedSummaryFeatureRepository implements SummaryFeatureRepository {
+
+    private static final Logger logger = LoggerFactory.getLogger(EmbeddedSummaryFeatureRepository.class);
+
+    @Value("${app.mongodb.bulk.chunk-size:500}")
+    private int bulkChunkSize;
+
+    @Autowired
+    private EmbeddedStore store;
+
+    // ID -> summary feature JSON without embedding
+    private MVMap<String, byte[]> summaryFeatures;
+    // ID -> embedding
+    private MVMap<String, double[]> embeddings;
+    // content hash -> ID
+    private MVMap<String, String> contentHashes;
+
+    @PostConstruct
+    public void initMaps() {
+        summaryFeatures = store.openMap("summary_features");
+        embeddings = store.openMap("summary_feature_embeddings");
+        contentHashes = store.openMap("summary_feature_hashes");
+    }
+
+    @Override
+    public synchronized BulkUpsertResult saveAll(List<SummaryFeature> summaryFeatureList) {
+        try {
+            BulkUpsertResult result = new BulkUpsertResult();
+            int size = Math.max(1, bulkChunkSize);
+
+            for (int start = 0; start < summaryFeatureList.size(); start += size) {
+                List<SummaryFeature> chunk = summaryFeatureList.subList(start,
+                    Math.min(start + size, summaryFeatureList.size()));
+                int inserted = 0;
+                for (SummaryFeature summaryFeature : chunk) {
+                    String hash = SummaryFeatureRepository.contentHash(summaryFeature);
+                    String id = contentHashes.get(hash);
+                    if (id == null || !summaryFeatures.containsKey(id)) {
+                        id = new ObjectId().toHexString();
+                        contentHashes.put(hash, id);
+                        inserted++;
+                    }
+                    summaryFeatures.put(id, store.toJson(summaryFeature, "id", "embedding"));
+                    if (summaryFeature.getEmbedding() != null) {
+                        embeddings.put(id, EmbeddedStore.toArray(summaryFeature.getEmbedding()));
+                    } else {
+                        embeddings.remove(id);
+                    }
+                    result.getIds().add(id);
+                }
+                result.getChunks().add(ChunkResult.builder()
+                    .index(start / size)
+                    .size(chunk.size())
+                    .inserted(inserted)
+                    .matched(chunk.size() - inserted)
+                    .modified(chunk.size() - inserted)
+                    .build());
+            }
+            store.commit();
+            logger.debug("Batch saved {} summary features: {} inserted, {} matched", summaryFeatureList.size(),
+                result.getInserted(), result.getMatched());
+            return result;
+        } catch (Exception e) {
+            logger.error("Error saving summary features: {}", e.getMessage(), e);
+            throw new RuntimeException("Database batch save operation failed", e);
+        }
+    }
+
+    @Override
+    public List<SummaryFeature> findAll() {
+        return readAll(true);
+    }
+
+    @Override
+    public List<SummaryFeatureView> findAllViews(Collection<String> include) {
+        List<SummaryFeatureView> views = new ArrayList<>();
+        for (SummaryFeature summaryFeature : readAll(include.contains("embedding"))) {
+            views.add(SummaryFeatureView.builder()
+                .id(summaryFeature.getId())
+                .feature(summaryFeature.getFeature())
+                .description(summaryFeature.getDescription())
+                .count(summaryFeature.getCount())
+                .checklist(summaryFeature.getChecklist())
+                .example(summaryFeature.getExample())
+                .embedding(summaryFeature.getEmbedding())
+                .build());
+        }
+        return views;
+    }
+
+    @Override
+    public SummaryFeature findById(String id) {
+        return read(id, true);
+    }
+
+    @Override
+    public Map<String, SummaryFeature> findByIds(Collection<String> ids) {
+        Map<String, SummaryFeature> featuresById = new LinkedHashMap<>();
+        for (String id : ids) {
+            SummaryFeature summaryFeature = read(id, false);
+            if (summaryFeature != null) {
+                featuresById.put(id, summaryFeature);
+            }
+        }
+        return featuresById;
+    }
+
+    @Override
+    public synchronized long deleteAll() {
+        long deletedCount = summaryFeatures.size();
+        summaryFeatures.clear();
+        embeddings.clear();
+        contentHashes.clear();
+        store.commit();
+        logger.debug("Deleted {} summary features", deletedCount);
+        return deletedCount;
+    }
+
+    @Override
+    public long count() {
+        return summaryFeatures.sizeAsLong();
+    }
+
+    private List<SummaryFeature> readAll(boolean withEmbedding) {
+        List<SummaryFeature> result = new ArrayList<>();
+        summaryFeatures.keyIterator(null).forEachRemaining(id -> {
+            SummaryFeature summaryFeature = read(id, withEmbedding);
+            if (summaryFeature != null) {
+                result.add(summaryFeature);
+            }
+        });
+        return result;
+    }
+
+    private SummaryFeature read(String id, boolean withEmbedding) {
+        byte[] json = id != null ? summaryFeatures.get(id) : null;
+        if (json == null) {
+            return null;
+        }
+        SummaryFeature summaryFeature = store.fromJson(json, SummaryFeature.class);
+        summaryFeature.setId(id);
+        if (withEmbedding) {
+            double[] embedding = embeddings.get(id);
+            if (embedding != null) {
+                summaryFeature.setEmbedding(EmbeddedStore.toList(embedding));
+            }
+        }
+        return summaryFeature;
+    }
+}
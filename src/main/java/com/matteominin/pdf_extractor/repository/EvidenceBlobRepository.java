@@ -0,0 +1,129 @@
+package com.matteominin.pdf_extractor.repository;
+
+import com.matteominin.pdf_extractor.config.DBManager;
+import com.matteominin.pdf_extractor.util.ContentHash;
+import com.matteominin.pdf_extractor.util.Deflate;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.WriteModel;
+import org.bson.Document;
+import org.bson.types.Binary;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Content-addressed store for evidence text (matched section text) referenced from
+ * coverage reports. Each distinct text is stored once, deflate-compressed, under the
+ * SHA-256 of its UTF-8 bytes; storing a text that is already present is a no-op.
+ */
+@Repository
+@Profile("!embedded")
+public class EvidenceBlobRepository {
+
+    private static final Logger logger = LoggerFactory.getLogger(EvidenceBlobRepository.class);
+
+    private static final int DUPLICATE_KEY = 11000;
+
+    @Value("${app.mongodb.collection.evidence:evidence_blobs}")
+    private String collectionName;
+
+    @Autowired
+    private DBManager dbManager;
+
+    private MongoCollection<Document> getCollection() {
+        return dbManager.getCollection(collectionName);
+    }
+
+    /**
+     * Stores the given texts, skipping those already present.
+     *
+     * @param texts texts to store; null and empty texts are ignored
+     * @return hash of each stored text, keyed by text
+     */
+    public Map<String, String> storeAll(Collection<String> texts) {
+        Map<String, String> hashes = new LinkedHashMap<>();
+        for (String text : texts) {
+            if (text != null && !text.isEmpty() && !hashes.containsKey(text)) {
+                hashes.put(text, ContentHash.of(text.getBytes(StandardCharsets.UTF_8)));
+            }
+        }
+        if (hashes.isEmpty()) {
+            return hashes;
+        }
+
+        Date now = new Date();
+        List<WriteModel<Document>> writes = new ArrayList<>(hashes.size());
+        hashes.forEach((text, hash) -> {
+            byte[] raw = text.getBytes(StandardCharsets.UTF_8);
+            writes.add(new UpdateOneModel<>(
+                new Document("_id", hash),
+                new Document("$setOnInsert", new Document("data", new Binary(Deflate.compress(raw)))
+                    .append("encoding", "deflate")
+                    .append("length", raw.length)
+                    .append("createdAt", now)),
+                new UpdateOptions().upsert(true)));
+        });
+
+        try {
+            getCollection().bulkWrite(writes, new BulkWriteOptions().ordered(false));
+        } catch (MongoBulkWriteException e) {
+            // A concurrent writer inserting the same blob first is not an error: the content is identical
+            List<BulkWriteError> failures = e.getWriteErrors().stream()
+                .filter(error -> error.getCode() != DUPLICATE_KEY)
+                .toList();
+            if (!failures.isEmpty()) {
+                logger.error("Failed to store {} evidence blobs: {}", failures.size(), failures.get(0).getMessage());
+                throw new RuntimeException("Database save operation failed", e);
+            }
+        } catch (Exception e) {
+            logger.error("Error storing evidence blobs: {}", e.getMessage(), e);
+            throw new RuntimeException("Database save operation failed", e);
+        }
+        return hashes;
+    }
+
+    /**
+     * Loads the texts with the given hashes in a single query.
+     *
+     * @return text by hash; unknown hashes are absent
+     */
+    public Map<String, String> findTexts(Collection<String> hashes) {
+        Map<String, String> texts = new HashMap<>();
+        if (hashes.isEmpty()) {
+            return texts;
+        }
+        try {
+            getCollection().find(new Document("_id", new Document("$in", List.copyOf(hashes))))
+                .forEach(doc -> texts.put(doc.getString("_id"), decode(doc)));
+            return texts;
+        } catch (Exception e) {
+            logger.error("Error retrieving evidence blobs: {}", e.getMessage(), e);
+            throw new RuntimeException("Database retrieval operation failed", e);
+        }
+    }
+
+    private static String decode(Document doc) {
+        byte[] data = doc.get("data", Binary.class).getData();
+        if (!"deflate".equals(doc.getString("encoding"))) {
+            return new String(data, StandardCharsets.UTF_8);
+        }
+        return new String(Deflate.decompress(data, doc.getInteger("length", data.length)), StandardCharsets.UTF_8);
+    }
+}
@@ -1,227 +1,113 @@
 package com.matteominin.pdf_extractor.repository;
 
+import com.matteominin.pdf_extractor.model.ingestion.BulkUpsertResult;
 import com.matteominin.pdf_extractor.model.pdf.Feature;
-import com.matteominin.pdf_extractor.model.feature.SummaryFeature;
-import com.mongodb.client.MongoClient;
-import com.mongodb.client.MongoClients;
-import com.mongodb.client.MongoDatabase;
-import com.mongodb.client.MongoCollection;
-import com.mongodb.client.result.InsertOneResult;
-
-import jakarta.annotation.PostConstruct;
-import jakarta.annotation.PreDestroy;
-
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.stereotype.Repository;
-import org.bson.Document;
-import org.bson.types.ObjectId;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import com.matteominin.pdf_extractor.model.pdf.FeatureView;
+import com.matteominin.pdf_extractor.util.ContentHash;
 
 import java.util.ArrayList;
-import java.util.Date;
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
-@Repository
-public class FeatureRepository {
-    
-    private static final Logger logger = LoggerFactory.getLogger(FeatureRepository.class);
-    
-    @Value("${spring.data.mongodb.uri}")
-    private String mongoUri;
-    
-    @Value("${app.mongodb.database:features_repo}")
-    private String databaseName;
-    
-    @Value("${app.mongodb.collection:features}")
-    private String collectionName;
-    
-    @Value("${app.mongodb.collection.summary:summary_features}")
-    private String summaryCollectionName;
-    
-    private MongoClient mongoClient;
-    private MongoDatabase database;
-    private MongoCollection<Document> collection;
-    private MongoCollection<Document> summaryCollection;
-    
-    @PostConstruct
-    public void initMongoDB() {
-        try {
-            mongoClient = MongoClients.create(mongoUri);
-            database = mongoClient.getDatabase(databaseName);
-            collection = database.getCollection(collectionName);
-            summaryCollection = database.getCollection(summaryCollectionName);
-            logger.info("MongoDB connection initialized successfully");
-        } catch (Exception e) {
-            logger.error("Failed to initialize MongoDB connection", e);
-            throw new RuntimeException("Database initialization failed", e);
-        }
-    }
-    
-    @PreDestroy
-    public void closeMongoDB() {
-        if (mongoClient != null) {
-            mongoClient.close();
-            logger.info("MongoDB connection closed");
-        }
-    }
+/**
+ * Storage of extracted features. Backed by MongoDB by default and by an embedded local
+ * store with the {@code embedded} profile.
+ */
+public interface FeatureRepository {
 
-    public List<Feature> findAll() {
-        return collection.find()
-        .map(this::convertToFeature)
-        .into(new ArrayList<>());
-    }
+    // Every stored field except the section text, which is large and not needed to cluster or list features
+    List<String> FEATURE_FIELDS = List.of("feature", "description", "category", "evidence",
+        "confidence", "sourceTitle", "filePath", "embedding", "createdAt", "updatedAt");
 
-    // Efficient method to get only features with embeddings (for clustering)
-    public List<Feature> findAllWithEmbeddings() {
-        return collection.find(new Document("embedding", new Document("$exists", true).append("$ne", null)))
-        .map(this::convertToFeature)
-        .into(new ArrayList<>());
-    }
+    // Fields of the listing view; the heavy ones are only read when requested
+    List<String> VIEW_FIELDS = List.of("feature", "description", "category", "evidence",
+        "confidence", "sourceTitle", "filePath", "createdAt", "updatedAt");
+    Set<String> OPTIONAL_VIEW_FIELDS = Set.of("embedding", "section_text");
 
-    // Stream-based method for large datasets
-    public java.util.stream.Stream<Feature> streamAllWithEmbeddings() {
-        return collection.find(new Document("embedding", new Document("$exists", true).append("$ne", null)))
-        .map(this::convertToFeature)
-        .into(new ArrayList<>())
-        .stream();
-    }
+    List<Feature> findAll();
 
-    // Efficient method to get only id, feature text, and embedding (minimal data for clustering)
-    public List<Document> findEmbeddingsOnly() {
-        return collection.find(new Document("embedding", new Document("$exists", true).append("$ne", null)))
-        .projection(new Document("_id", 1).append("feature", 1).append("embedding", 1))
-        .into(new ArrayList<>());
-    }
+    /**
+     * Features that have an embedding, oldest first.
+     */
+    List<Feature> findAllWithEmbeddings();
 
-    private Feature convertToFeature(Document doc) {
-        Feature feature = new Feature();
-        feature.setId(doc.getObjectId("_id").toString());
-        feature.setFeature(doc.getString("feature"));
-        feature.setDescription(doc.getString("description"));
-        feature.setCategory(doc.getString("category"));
-        feature.setEvidence(doc.getString("evidence"));
-        feature.setConfidence(doc.getDouble("confidence"));
-        feature.setSource_title(doc.getString("sourceTitle"));
-        feature.setFilePath(doc.getString("filePath"));
-        if (doc.get("embedding") != null) {
-            @SuppressWarnings("unchecked")
-            List<Double> embedding = (List<Double>) doc.get("embedding");
-            feature.setEmbedding(embedding);
-        }
-        feature.setCreatedAt(doc.getDate("createdAt"));
-        feature.setUpdatedAt(doc.getDate("updatedAt"));
-        return feature;
-    }
-    
-    public String saveFeature(Feature feature) {
-        try {
-            feature.setCreatedAt(new Date());
-            feature.setUpdatedAt(new Date());
-            
-            Document doc = convertToDocument(feature);
-            InsertOneResult result = collection.insertOne(doc);
-            
-            if (result.wasAcknowledged()) {
-                ObjectId insertedId = result.getInsertedId().asObjectId().getValue();
-                feature.setId(insertedId.toString());
-                logger.debug("Feature saved successfully with ID: {}", insertedId);
-                return insertedId.toString();
-            } else {
-                throw new RuntimeException("Failed to save feature to database");
-            }
-        } catch (Exception e) {
-            logger.error("Error saving feature: {}", e.getMessage(), e);
-            throw new RuntimeException("Database save operation failed", e);
-        }
-    }
+    Stream<Feature> streamAllWithEmbeddings();
 
-    public List<String> saveFeatureList(List<Feature> features) {
-        List<String> ids = new ArrayList<>();
-        List<Document> docs = new ArrayList<>();
-        Date now = new Date();
-        for (Feature feature : features) {
-            feature.setCreatedAt(now);
-            feature.setUpdatedAt(now);
-            docs.add(convertToDocument(feature));
-        }
-        try {
-            collection.insertMany(docs);
-            for (Document doc : docs) {
-                ObjectId id = doc.getObjectId("_id");
-                ids.add(id != null ? id.toString() : "");
+    /**
+     * Streams the features with embeddings, oldest first, without holding them all in memory.
+     * The stream must be consumed or closed.
+     *
+     * @param batchSize features read per round trip
+     * @param fields fields to read (see {@link #FEATURE_FIELDS}), or null for all of them
+     */
+    Stream<Feature> streamAllWithEmbeddings(int batchSize, List<String> fields);
+
+    /**
+     * Streams all features, see {@link #streamAllWithEmbeddings(int, List)}.
+     */
+    Stream<Feature> streamAll(int batchSize, List<String> fields);
+
+    Stream<Feature> streamAll();
+
+    /**
+     * Streams the listing view of the features in ID order. Paging is keyset-based: pass the
+     * last ID of the previous page as {@code after}.
+     *
+     * @param include optional heavy fields to read, from {@link #OPTIONAL_VIEW_FIELDS}
+     * @param after only features with a greater ID, or null to start from the first one
+     * @param limit maximum number of features, or 0 for no limit
+     */
+    Stream<FeatureView> streamViews(Collection<String> include, String after, int limit);
+
+    /**
+     * Hands the features with embeddings to the consumer in batches of at most
+     * {@code batchSize}, so only one batch is held in memory at a time.
+     */
+    default void forEachBatchWithEmbeddings(int batchSize, Consumer<List<Feature>> consumer) {
+        try (Stream<Feature> features = streamAllWithEmbeddings(batchSize, FEATURE_FIELDS)) {
+            Iterator<Feature> cursor = features.iterator();
+            List<Feature> batch = new ArrayList<>(batchSize);
+            while (cursor.hasNext()) {
+                batch.add(cursor.next());
+                if (batch.size() >= batchSize) {
+                    consumer.accept(batch);
+                    batch = new ArrayList<>(batchSize);
+                }
             }
-            logger.debug("Batch saved {} features", docs.size());
-            return ids;
-        } catch (Exception e) {
-            logger.error("Error saving feature list: {}", e.getMessage(), e);
-            throw new RuntimeException("Database batch save operation failed", e);
-        }
-    }
-    
-    private Document convertToDocument(Feature feature) {
-        return new Document()
-            .append("feature", feature.getFeature())
-            .append("description", feature.getDescription())
-            .append("category", feature.getCategory())
-            .append("evidence", feature.getEvidence())
-            .append("confidence", feature.getConfidence())
-            .append("sourceTitle", feature.getSource_title())
-            .append("filePath", feature.getFilePath())
-            .append("section_text", feature.getSection_text())
-            .append("embedding", feature.getEmbedding())
-            .append("createdAt", feature.getCreatedAt())
-            .append("updatedAt", feature.getUpdatedAt());
-    }
-    
-    // SummaryFeature methods
-    public List<String> saveSummaryFeatures(List<SummaryFeature> summaryFeatures) {
-        List<String> ids = new ArrayList<>();
-        List<Document> docs = new ArrayList<>();
-        Date now = new Date();
-        
-        for (SummaryFeature summaryFeature : summaryFeatures) {
-            docs.add(convertToSummaryDocument(summaryFeature, now));
-        }
-        
-        try {
-            summaryCollection.insertMany(docs);
-            for (Document doc : docs) {
-                ObjectId id = doc.getObjectId("_id");
-                ids.add(id != null ? id.toString() : "");
+            if (!batch.isEmpty()) {
+                consumer.accept(batch);
             }
-            logger.debug("Batch saved {} summary features", docs.size());
-            return ids;
-        } catch (Exception e) {
-            logger.error("Error saving summary feature list: {}", e.getMessage(), e);
-            throw new RuntimeException("Database batch save operation failed", e);
         }
     }
-    
-    public List<SummaryFeature> findAllSummaryFeatures() {
-        return summaryCollection.find()
-            .map(this::convertToSummaryFeature)
-            .into(new ArrayList<>());
-    }
-    
-    private Document convertToSummaryDocument(SummaryFeature summaryFeature, Date timestamp) {
-        return new Document()
-            .append("feature", summaryFeature.getFeature())
-            .append("description", summaryFeature.getDescription())
-            .append("count", summaryFeature.getCount())
-            .append("example", summaryFeature.getExample())
-            .append("embedding", summaryFeature.getEmbedding())
-            .append("createdAt", timestamp)
-            .append("updatedAt", timestamp);
-    }
-    
-    private SummaryFeature convertToSummaryFeature(Document doc) {
-        return SummaryFeature.builder()
-            .feature(doc.getString("feature"))
-            .description(doc.getString("description"))
-            .count(doc.getString("count"))
-            .example(doc.getString("example"))
-            .embedding(doc.getList("embedding", Double.class))
-            .build();
+
+    /**
+     * Features by ID without embeddings, used to rebuild stored clustering results.
+     */
+    List<Feature> findByIds(Collection<String> ids);
+
+    /**
+     * Version of the feature corpus. Any insert, update or delete yields a different version.
+     *
+     * @return opaque corpus version string
+     */
+    String getCorpusVersion();
+
+    String saveFeature(Feature feature);
+
+    /**
+     * Saves the features idempotently, keyed by {@link #contentHash(Feature)}: saving the same
+     * features again does not create duplicates. The IDs of the stored features are set on them.
+     *
+     * @return IDs in input order and per-chunk inserted/matched/failed counts
+     */
+    BulkUpsertResult saveFeatureList(List<Feature> features);
+
+    // Idempotency key: the feature text and the document it was extracted from
+    static String contentHash(Feature feature) {
+        return ContentHash.of(feature.getFeature(), feature.getDescription(), feature.getFilePath());
     }
 }
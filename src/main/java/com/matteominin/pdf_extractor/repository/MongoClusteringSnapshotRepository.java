@@ -0,0 +1,123 @@
+package com.matteominin.pdf_extractor.repository;
+
+import com.matteominin.pdf_extractor.config.DBManager;
+import com.matteominin.pdf_extractor.model.clustering.ClusteringSnapshot;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.result.InsertOneResult;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+@Repository
+@Profile("!embedded")
+public class MongoClusteringSnapshotRepository implements ClusteringSnapshotRepository {
+
+    private static final Logger logger = LoggerFactory.getLogger(MongoClusteringSnapshotRepository.class);
+
+    @Value("${app.mongodb.collection.clustering-snapshots:clustering_snapshots}")
+    private String collectionName;
+
+    @Autowired
+    private DBManager dbManager;
+
+    private MongoCollection<Document> getCollection() {
+        return dbManager.getCollection(collectionName);
+    }
+
+    /**
+     * Find the most recent snapshot computed with the given parameters on the given corpus version.
+     *
+     * @param parametersKey canonical key of the clustering parameters
+     * @param corpusVersion version of the feature corpus
+     * @return the snapshot or null if none was stored
+     */
+    @Override
+    public ClusteringSnapshot findLatest(String parametersKey, String corpusVersion) {
+        try {
+            Document doc = getCollection()
+                .find(new Document("parametersKey", parametersKey).append("corpusVersion", corpusVersion))
+                .sort(new Document("createdAt", -1))
+                .first();
+            return doc != null ? convertToSnapshot(doc) : null;
+        } catch (Exception e) {
+            logger.error("Error retrieving clustering snapshot {}: {}", parametersKey, e.getMessage(), e);
+            throw new RuntimeException("Database retrieval operation failed", e);
+        }
+    }
+
+    @Override
+    public String save(ClusteringSnapshot snapshot) {
+        try {
+            snapshot.setCreatedAt(new Date());
+
+            InsertOneResult result = getCollection().insertOne(convertToDocument(snapshot));
+            if (result.wasAcknowledged()) {
+                ObjectId insertedId = result.getInsertedId().asObjectId().getValue();
+                snapshot.setId(insertedId.toString());
+                logger.debug("Clustering snapshot saved successfully with ID: {}", insertedId);
+                return insertedId.toString();
+            } else {
+                throw new RuntimeException("Failed to save clustering snapshot to database");
+            }
+        } catch (Exception e) {
+            logger.error("Error saving clustering snapshot: {}", e.getMessage(), e);
+            throw new RuntimeException("Database save operation failed", e);
+        }
+    }
+
+    private Document convertToDocument(ClusteringSnapshot snapshot) {
+        return new Document()
+            .append("algorithm", snapshot.getAlgorithm())
+            .append("parametersKey", snapshot.getParametersKey())
+            .append("parameters", new Document(snapshot.getParameters()))
+            .append("corpusVersion", snapshot.getCorpusVersion())
+            .append("clusters", snapshot.getClusters())
+            .append("stats", new Document()
+                .append("totalFeatures", snapshot.getTotalFeatures())
+                .append("totalClusters", snapshot.getTotalClusters())
+                .append("largestClusterSize", snapshot.getLargestClusterSize())
+                .append("averageClusterSize", snapshot.getAverageClusterSize()))
+            .append("createdAt", snapshot.getCreatedAt());
+    }
+
+    private ClusteringSnapshot convertToSnapshot(Document doc) {
+        List<List<String>> clusters = new ArrayList<>();
+        List<?> clusterDocs = doc.getList("clusters", List.class);
+        if (clusterDocs != null) {
+            for (Object cluster : clusterDocs) {
+                List<String> ids = new ArrayList<>();
+                for (Object id : (List<?>) cluster) {
+                    ids.add(id.toString());
+                }
+                clusters.add(ids);
+            }
+        }
+
+        Document parameters = doc.get("parameters", Document.class);
+        Document stats = doc.get("stats", new Document());
+
+        return ClusteringSnapshot.builder()
+            .id(doc.getObjectId("_id").toString())
+            .algorithm(doc.getString("algorithm"))
+            .parametersKey(doc.getString("parametersKey"))
+            .parameters(parameters != null ? new LinkedHashMap<>(parameters) : new LinkedHashMap<>())
+            .corpusVersion(doc.getString("corpusVersion"))
+            .clusters(clusters)
+            .totalFeatures(stats.getInteger("totalFeatures", 0))
+            .totalClusters(stats.getInteger("totalClusters", 0))
+            .largestClusterSize(stats.getInteger("largestClusterSize", 0))
+            .averageClusterSize(stats.get("averageClusterSize", 0.0))
+            .createdAt(doc.getDate("createdAt"))
+            .build();
+    }
+}
@@ -0,0 +1,635 @@
+package com.matteominin.pdf_extractor.repository;
+
+import com.matteominin.pdf_extractor.config.DBManager;
+import com.matteominin.pdf_extractor.model.coverage.Coverage;
+import com.matteominin.pdf_extractor.model.coverage.CoverageReport;
+import com.matteominin.pdf_extractor.model.coverage.CoverageStats;
+import com.matteominin.pdf_extractor.model.coverage.CoveredFeature;
+import com.matteominin.pdf_extractor.model.feature.MatchedFeature;
+import com.matteominin.pdf_extractor.model.coverage.StatsInterval;
+import com.matteominin.pdf_extractor.model.coverage.UncoveredFeature;
+import com.matteominin.pdf_extractor.model.coverage.UncoveredFeatureStats;
+import com.matteominin.pdf_extractor.util.Deflate;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.MongoCommandException;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.InsertManyOptions;
+import com.mongodb.client.result.InsertOneResult;
+import org.bson.BsonBinaryReader;
+import org.bson.ByteBuf;
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.DocumentCodec;
+import org.bson.types.Binary;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+@Repository
+@Profile("!embedded")
+public class MongoCoverageReportRepository implements CoverageReportRepository {
+    
+    private static final Logger logger = LoggerFactory.getLogger(MongoCoverageReportRepository.class);
+
+    // InvalidPipelineOperator, and "unknown group operator" for accumulators
+    private static final Set<Integer> UNKNOWN_OPERATOR_CODES = Set.of(168, 15952);
+
+    private static final int DUPLICATE_KEY = 11000;
+
+    private static final DocumentCodec DOCUMENT_CODEC = new DocumentCodec();
+    
+    @Value("${app.mongodb.collection.coverage:coverage_reports}")
+    private String collectionName;
+
+    @Value("${app.mongodb.collection.coverage-archive:coverage_reports_archive}")
+    private String archiveCollectionName;
+
+    @Value("${app.mongodb.collection.coverage-summaries:coverage_report_summaries}")
+    private String summariesCollectionName;
+    
+    @Autowired
+    private DBManager dbManager;
+
+    @Autowired
+    private EvidenceBlobRepository evidenceBlobRepository;
+
+    // Cleared after the first server that rejects $percentile
+    private volatile boolean percentileSupported = true;
+    
+    private MongoCollection<Document> getCollection() {
+        return dbManager.getCollection(collectionName);
+    }
+
+    private MongoCollection<Document> getArchiveCollection() {
+        return dbManager.getCollection(archiveCollectionName);
+    }
+
+    private MongoCollection<Document> getSummariesCollection() {
+        return dbManager.getCollection(summariesCollectionName);
+    }
+
+    @Override
+    public List<CoverageReport> findAll() {
+        try {
+            MongoCollection<Document> collection = getCollection();
+            return collection.find()
+                .map(this::convertToCoverageReport)
+                .into(new ArrayList<>());
+        } catch (Exception e) {
+            logger.error("Error retrieving coverage reports: {}", e.getMessage(), e);
+            throw new RuntimeException("Database retrieval operation failed", e);
+        }
+    }
+
+    @Override
+    public CoverageReport findById(String id) {
+        try {
+            MongoCollection<Document> collection = getCollection();
+            Document doc = collection.find(new Document("_id", new ObjectId(id))).first();
+            if (doc == null) {
+                Document archived = getArchiveCollection().find(new Document("_id", new ObjectId(id))).first();
+                doc = archived != null ? unarchive(archived) : null;
+            }
+            return doc != null ? convertToCoverageReport(doc) : null;
+        } catch (Exception e) {
+            logger.error("Error retrieving coverage report by id {}: {}", id, e.getMessage(), e);
+            throw new RuntimeException("Database retrieval operation failed", e);
+        }
+    }
+
+    @Override
+    public String save(CoverageReport coverageReport) {
+        try {
+            Date now = new Date();
+            // Kept when already set, as saveAll does, so both paths bucket a report the same way
+            if (coverageReport.getCreatedAt() == null) {
+                coverageReport.setCreatedAt(now);
+            }
+            coverageReport.setUpdatedAt(now);
+            storeSectionTexts(List.of(coverageReport));
+            
+            MongoCollection<Document> collection = getCollection();
+            Document doc = convertToDocument(coverageReport);
+            InsertOneResult result = collection.insertOne(doc);
+            
+            if (result.wasAcknowledged()) {
+                ObjectId insertedId = result.getInsertedId().asObjectId().getValue();
+                coverageReport.setId(insertedId.toString());
+                logger.debug("Coverage report saved successfully with ID: {}", insertedId);
+                return insertedId.toString();
+            } else {
+                throw new RuntimeException("Failed to save coverage report to database");
+            }
+        } catch (Exception e) {
+            logger.error("Error saving coverage report: {}", e.getMessage(), e);
+            throw new RuntimeException("Database save operation failed", e);
+        }
+    }
+
+    /**
+     * Inserts a batch of reports with a single unordered write. Reports that already carry an
+     * ID (assigned before they were queued) keep it, and so does their creation time. Reports
+     * whose ID is already in the collection count as stored, so a batch can be written again.
+     *
+     * @return number of reports stored
+     */
+    @Override
+    public int saveAll(List<CoverageReport> coverageReports) {
+        if (coverageReports.isEmpty()) {
+            return 0;
+        }
+        try {
+            Date now = new Date();
+            for (CoverageReport coverageReport : coverageReports) {
+                if (coverageReport.getId() == null) {
+                    coverageReport.setId(new ObjectId().toString());
+                }
+                if (coverageReport.getCreatedAt() == null) {
+                    coverageReport.setCreatedAt(now);
+                }
+                coverageReport.setUpdatedAt(now);
+            }
+            storeSectionTexts(coverageReports);
+
+            List<Document> docs = coverageReports.stream().map(this::convertToDocument).toList();
+            getCollection().insertMany(docs, new InsertManyOptions().ordered(false));
+            logger.debug("Saved batch of {} coverage reports", docs.size());
+            return docs.size();
+        } catch (MongoBulkWriteException e) {
+            // Unordered: the reports without an error were inserted, and a duplicate ID means the
+            // report was stored by an earlier attempt
+            long alreadyStored = e.getWriteErrors().stream().filter(error -> error.getCode() == DUPLICATE_KEY).count();
+            int stored = e.getWriteResult().getInsertedCount() + (int) alreadyStored;
+            if (stored < coverageReports.size()) {
+                logger.error("Batch of {} coverage reports had {} failed inserts: {}", coverageReports.size(),
+                    coverageReports.size() - stored, e.getWriteErrors().stream()
+                        .filter(error -> error.getCode() != DUPLICATE_KEY).findFirst().orElseThrow().getMessage());
+            }
+            return stored;
+        } catch (Exception e) {
+            logger.error("Error saving coverage reports: {}", e.getMessage(), e);
+            throw new RuntimeException("Database save operation failed", e);
+        }
+    }
+
+    /**
+     * Loads the section text of the report's matched features from the evidence blob store,
+     * in one query. Matched features that already carry their text (reports stored before
+     * evidence was moved out of the report) are left as they are.
+     */
+    @Override
+    public void loadSectionTexts(CoverageReport report) {
+        List<MatchedFeature> pending = matchedFeatures(report).stream()
+            .filter(matched -> matched.getSectionText() == null && matched.getSectionTextRef() != null)
+            .toList();
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        Set<String> refs = new HashSet<>();
+        pending.forEach(matched -> refs.add(matched.getSectionTextRef()));
+        Map<String, String> texts = evidenceBlobRepository.findTexts(refs);
+        pending.forEach(matched -> matched.setSectionText(texts.get(matched.getSectionTextRef())));
+    }
+
+    /**
+     * Archives in batches, oldest first. Each batch is inserted into the archive and summary
+     * collections before it is deleted from the hot one, and inserts of documents already
+     * there are ignored, so an interrupted run is completed by the next one.
+     */
+    @Override
+    public int archiveOlderThan(Date cutoff, int batchSize) {
+        Document filter = new Document("createdAt", new Document("$lt", cutoff))
+            .append("expiresAt", null);
+        int archived = 0;
+        try {
+            while (true) {
+                List<Document> batch = getCollection().find(filter)
+                    .sort(new Document("createdAt", 1))
+                    .limit(batchSize)
+                    .into(new ArrayList<>());
+                if (batch.isEmpty()) {
+                    break;
+                }
+
+                Date now = new Date();
+                List<Document> archives = new ArrayList<>(batch.size());
+                List<Document> summaries = new ArrayList<>(batch.size());
+                List<Object> ids = new ArrayList<>(batch.size());
+                for (Document doc : batch) {
+                    archives.add(archive(doc, now));
+                    summaries.add(summarize(doc));
+                    ids.add(doc.get("_id"));
+                }
+                insertIgnoringDuplicates(getArchiveCollection(), archives);
+                insertIgnoringDuplicates(getSummariesCollection(), summaries);
+                archived += (int) getCollection().deleteMany(new Document("_id", new Document("$in", ids)))
+                    .getDeletedCount();
+
+                if (batch.size() < batchSize) {
+                    break;
+                }
+            }
+            logger.debug("Archived {} coverage reports created before {}", archived, cutoff);
+            return archived;
+        } catch (Exception e) {
+            logger.error("Error archiving coverage reports after {} archived: {}", archived, e.getMessage(), e);
+            throw new RuntimeException("Database archive operation failed", e);
+        }
+    }
+
+    // The whole report as deflated BSON, with the fields needed to find it uncompressed
+    private static Document archive(Document doc, Date archivedAt) {
+        RawBsonDocument raw = new RawBsonDocument(doc, DOCUMENT_CODEC);
+        ByteBuf buffer = raw.getByteBuffer();
+        byte[] bson = new byte[buffer.remaining()];
+        buffer.get(bson);
+        return new Document("_id", doc.get("_id"))
+            .append("reportName", doc.getString("reportName"))
+            .append("createdAt", doc.getDate("createdAt"))
+            .append("archivedAt", archivedAt)
+            .append("data", new Binary(Deflate.compress(bson)))
+            .append("encoding", "deflate")
+            .append("length", bson.length);
+    }
+
+    private static Document unarchive(Document archived) {
+        byte[] data = archived.get("data", Binary.class).getData();
+        byte[] bson = Deflate.decompress(data, archived.getInteger("length", data.length));
+        return DOCUMENT_CODEC.decode(new BsonBinaryReader(ByteBuffer.wrap(bson)), DecoderContext.builder().build());
+    }
+
+    // Same field paths as the reports, so the statistics pipelines read both alike
+    private static Document summarize(Document doc) {
+        Document coverage = doc.get("coverage", Document.class);
+        Document summaryCoverage = new Document();
+        if (coverage != null) {
+            List<Document> uncovered = new ArrayList<>();
+            List<Document> uncoveredDocs = coverage.getList("uncoveredFeatures", Document.class);
+            if (uncoveredDocs != null) {
+                uncoveredDocs.forEach(uncoveredDoc ->
+                    uncovered.add(new Document("referenceFeatureId", uncoveredDoc.getString("referenceFeatureId"))));
+            }
+            summaryCoverage.append("coveragePercentage", coverage.get("coveragePercentage"))
+                .append("coveredCount", coverage.get("coveredCount"))
+                .append("uncoveredCount", coverage.get("uncoveredCount"))
+                .append("uncoveredFeatures", uncovered);
+        }
+        return new Document("_id", doc.get("_id"))
+            .append("reportName", doc.getString("reportName"))
+            .append("createdAt", doc.getDate("createdAt"))
+            .append("coverage", summaryCoverage);
+    }
+
+    private static void insertIgnoringDuplicates(MongoCollection<Document> collection, List<Document> docs) {
+        try {
+            collection.insertMany(docs, new InsertManyOptions().ordered(false));
+        } catch (MongoBulkWriteException e) {
+            // Left over from an interrupted run
+            if (e.getWriteErrors().stream().anyMatch(error -> error.getCode() != DUPLICATE_KEY)) {
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Groups the matching reports and archived report summaries by name and
+     * {@code $dateToString} bucket of their creation time on the server, so only one document
+     * per group comes back. Percentiles use {@code $percentile} (MongoDB 7.0+); on older
+     * servers the group pushes the bare coverage percentages instead and the percentiles are
+     * computed here.
+     */
+    @Override
+    public List<CoverageStats> aggregateCoverageStats(String reportName, Date from, Date to, StatsInterval interval) {
+        try {
+            try {
+                return aggregateCoverageStats(reportName, from, to, interval, percentileSupported);
+            } catch (MongoCommandException e) {
+                if (!percentileSupported || !UNKNOWN_OPERATOR_CODES.contains(e.getErrorCode())) {
+                    throw e;
+                }
+                logger.info("$percentile not supported by the server, computing coverage percentiles in the application");
+                percentileSupported = false;
+                return aggregateCoverageStats(reportName, from, to, interval, false);
+            }
+        } catch (Exception e) {
+            logger.error("Error aggregating coverage statistics: {}", e.getMessage(), e);
+            throw new RuntimeException("Database aggregation operation failed", e);
+        }
+    }
+
+    private List<CoverageStats> aggregateCoverageStats(String reportName, Date from, Date to, StatsInterval interval,
+                                                       boolean serverPercentiles) {
+        Document match = statsFilter(reportName, from, to)
+            .append("coverage.coveragePercentage", new Document("$type", "number"));
+        Document group = new Document("_id", new Document("reportName", "$reportName")
+                .append("bucket", new Document("$dateToString", new Document("format", interval.getMongoFormat())
+                    .append("date", "$createdAt")
+                    .append("timezone", "UTC"))))
+            .append("reports", new Document("$sum", 1))
+            .append("average", new Document("$avg", "$coverage.coveragePercentage"))
+            .append("min", new Document("$min", "$coverage.coveragePercentage"))
+            .append("max", new Document("$max", "$coverage.coveragePercentage"));
+        if (serverPercentiles) {
+            group.append("percentiles", new Document("$percentile", new Document("input", "$coverage.coveragePercentage")
+                .append("p", List.of(0.5, 0.9))
+                .append("method", "approximate")));
+        } else {
+            group.append("values", new Document("$push", "$coverage.coveragePercentage"));
+        }
+
+        List<Document> pipeline = List.of(
+            new Document("$match", match),
+            unionWithSummaries(match),
+            new Document("$group", group),
+            new Document("$sort", new Document("_id.reportName", 1).append("_id.bucket", 1)));
+
+        List<CoverageStats> stats = new ArrayList<>();
+        for (Document doc : getCollection().aggregate(pipeline).allowDiskUse(true)) {
+            Document id = doc.get("_id", Document.class);
+            List<Double> percentiles;
+            if (serverPercentiles) {
+                percentiles = doc.getList("percentiles", Double.class);
+            } else {
+                List<Double> values = new ArrayList<>();
+                doc.getList("values", Number.class).forEach(value -> values.add(value.doubleValue()));
+                Collections.sort(values);
+                percentiles = List.of(CoverageReportRepository.percentile(values, 0.5),
+                    CoverageReportRepository.percentile(values, 0.9));
+            }
+            stats.add(CoverageStats.builder()
+                .reportName(id.getString("reportName"))
+                .bucket(id.getString("bucket"))
+                .reports(((Number) doc.get("reports")).longValue())
+                .averageCoverage(((Number) doc.get("average")).doubleValue())
+                .minCoverage(((Number) doc.get("min")).doubleValue())
+                .maxCoverage(((Number) doc.get("max")).doubleValue())
+                .medianCoverage(percentiles.get(0))
+                .p90Coverage(percentiles.get(1))
+                .build());
+        }
+        return stats;
+    }
+
+    /**
+     * Unwinds only the uncovered features of the matching reports and archived report
+     * summaries and counts them per reference feature on the server.
+     */
+    @Override
+    public List<UncoveredFeatureStats> findTopUncoveredFeatures(String reportName, Date from, Date to, int limit) {
+        try {
+            Document match = statsFilter(reportName, from, to);
+            List<Document> pipeline = List.of(
+                new Document("$match", match),
+                unionWithSummaries(match),
+                new Document("$project", new Document("createdAt", 1)
+                    .append("uncovered", "$coverage.uncoveredFeatures.referenceFeatureId")),
+                new Document("$unwind", "$uncovered"),
+                new Document("$group", new Document("_id", "$uncovered")
+                    .append("reports", new Document("$sum", 1))
+                    .append("lastSeenAt", new Document("$max", "$createdAt"))),
+                new Document("$sort", new Document("reports", -1).append("_id", 1)),
+                new Document("$limit", limit));
+
+            List<UncoveredFeatureStats> stats = new ArrayList<>();
+            for (Document doc : getCollection().aggregate(pipeline).allowDiskUse(true)) {
+                stats.add(UncoveredFeatureStats.builder()
+                    .referenceFeatureId(doc.getString("_id"))
+                    .reports(((Number) doc.get("reports")).longValue())
+                    .lastSeenAt(doc.getDate("lastSeenAt"))
+                    .build());
+            }
+            return stats;
+        } catch (Exception e) {
+            logger.error("Error aggregating uncovered features: {}", e.getMessage(), e);
+            throw new RuntimeException("Database aggregation operation failed", e);
+        }
+    }
+
+    // Archived reports only remain as summaries
+    private Document unionWithSummaries(Document match) {
+        return new Document("$unionWith", new Document("coll", summariesCollectionName)
+            .append("pipeline", List.of(new Document("$match", match))));
+    }
+
+    // Served by the reportName_1_createdAt_-1 and createdAt_-1 indexes of both collections
+    private Document statsFilter(String reportName, Date from, Date to) {
+        Document filter = new Document();
+        if (reportName != null) {
+            filter.append("reportName", reportName);
+        }
+        Document createdAt = new Document();
+        if (from != null) {
+            createdAt.append("$gte", from);
+        }
+        if (to != null) {
+            createdAt.append("$lt", to);
+        }
+        if (!createdAt.isEmpty()) {
+            filter.append("createdAt", createdAt);
+        }
+        return filter;
+    }
+
+    /**
+     * Moves the section text of the matched features to the evidence blob store, replacing
+     * it in the stored report with a reference. Identical texts shared by many reports are
+     * stored once.
+     */
+    private void storeSectionTexts(List<CoverageReport> reports) {
+        List<MatchedFeature> matchedFeatures = new ArrayList<>();
+        reports.forEach(report -> matchedFeatures.addAll(matchedFeatures(report)));
+        Map<String, String> refs = evidenceBlobRepository.storeAll(
+            matchedFeatures.stream().map(MatchedFeature::getSectionText).toList());
+        for (MatchedFeature matched : matchedFeatures) {
+            if (matched.getSectionText() != null) {
+                matched.setSectionTextRef(refs.get(matched.getSectionText()));
+            }
+        }
+    }
+
+    private List<MatchedFeature> matchedFeatures(CoverageReport report) {
+        List<MatchedFeature> matchedFeatures = new ArrayList<>();
+        if (report.getCoverage() != null && report.getCoverage().getCoveredFeatures() != null) {
+            for (CoveredFeature coveredFeature : report.getCoverage().getCoveredFeatures()) {
+                if (coveredFeature.getMatchedFeature() != null) {
+                    matchedFeatures.add(coveredFeature.getMatchedFeature());
+                }
+            }
+        }
+        return matchedFeatures;
+    }
+
+    private CoverageReport convertToCoverageReport(Document doc) {
+        CoverageReport report = new CoverageReport();
+        report.setId(doc.getObjectId("_id").toString());
+        report.setProvidedFeatures(doc.getInteger("providedFeatures", 0));
+        report.setSuccess(doc.getBoolean("success", false));
+        report.setThreshold(doc.getDouble("threshold"));
+        report.setTotalSummaryFeatures(doc.getInteger("totalSummaryFeatures", 0));
+        report.setReportName(doc.getString("reportName"));
+        report.setDescription(doc.getString("description"));
+        report.setCreatedAt(doc.getDate("createdAt"));
+        report.setUpdatedAt(doc.getDate("updatedAt"));
+        report.setExpiresAt(doc.getDate("expiresAt"));
+        
+        // Convert coverage with full details
+        Document coverageDoc = doc.get("coverage", Document.class);
+        if (coverageDoc != null) {
+            report.setCoverage(convertDocumentToCoverage(coverageDoc));
+        }
+        
+        return report;
+    }
+    
+    private Coverage convertDocumentToCoverage(Document coverageDoc) {
+        Coverage coverage = Coverage.builder().build();
+        
+        coverage.setCoveragePercentage(coverageDoc.getDouble("coveragePercentage"));
+        coverage.setCoveredCount(coverageDoc.getInteger("coveredCount", 0));
+        coverage.setUncoveredCount(coverageDoc.getInteger("uncoveredCount", 0));
+        
+        // Convert covered features
+        List<Document> coveredFeaturesDocs = coverageDoc.getList("coveredFeatures", Document.class);
+        if (coveredFeaturesDocs != null) {
+            for (Document coveredDoc : coveredFeaturesDocs) {
+                CoveredFeature coveredFeature = 
+                    convertDocumentToCoveredFeature(coveredDoc);
+                coverage.addCoveredFeature(coveredFeature);
+            }
+        }
+        
+        // Convert uncovered features
+        List<Document> uncoveredFeaturesDocs = coverageDoc.getList("uncoveredFeatures", Document.class);
+        if (uncoveredFeaturesDocs != null) {
+            for (Document uncoveredDoc : uncoveredFeaturesDocs) {
+                UncoveredFeature uncoveredFeature = 
+                    convertDocumentToUncoveredFeature(uncoveredDoc);
+                coverage.addUncoveredFeature(uncoveredFeature);
+            }
+        }
+        
+        return coverage;
+    }
+    
+    private CoveredFeature convertDocumentToCoveredFeature(Document doc) {
+        CoveredFeature.CoveredFeatureBuilder builder = CoveredFeature.builder();
+        
+        // Reference feature ID (stored as string)
+        String referenceFeatureId = doc.getString("referenceFeatureId");
+        if (referenceFeatureId != null) {
+            builder.referenceFeatureId(referenceFeatureId);
+        }
+        
+        // Matched feature
+        Document matchedDoc = doc.get("matchedFeature", Document.class);
+        if (matchedDoc != null) {
+            MatchedFeature matchedFeature = MatchedFeature.builder()
+                    .feature(matchedDoc.getString("feature"))
+                    .description(matchedDoc.getString("description"))
+                    // Inline text in reports stored before the evidence blob store
+                    .sectionText(matchedDoc.getString("sectionText"))
+                    .sectionTextRef(matchedDoc.getString("sectionTextRef"))
+                    .build();
+            builder.matchedFeature(matchedFeature);
+        }
+        
+        builder.similarity(doc.getDouble("similarity"));
+        return builder.build();
+    }
+    
+    private UncoveredFeature convertDocumentToUncoveredFeature(Document doc) {
+        UncoveredFeature.UncoveredFeatureBuilder builder = UncoveredFeature.builder();
+        
+        // Reference feature ID (stored as string)
+        String referenceFeatureId = doc.getString("referenceFeatureId");
+        if (referenceFeatureId != null) {
+            builder.referenceFeatureId(referenceFeatureId);
+        }
+
+        builder.similarity(doc.getDouble("similarity"));
+        return builder.build();
+    }
+    
+    private Document convertToDocument(CoverageReport report) {
+        Document doc = new Document();
+        if (report.getId() != null) {
+            doc.append("_id", new ObjectId(report.getId()));
+        }
+        if (report.getExpiresAt() != null) {
+            doc.append("expiresAt", report.getExpiresAt());
+        }
+        return doc
+            .append("providedFeatures", report.getProvidedFeatures())
+            .append("success", report.isSuccess())
+            .append("threshold", report.getThreshold())
+            .append("totalSummaryFeatures", report.getTotalSummaryFeatures())
+            .append("reportName", report.getReportName())
+            .append("description", report.getDescription())
+            .append("coverage", convertCoverageToDocument(report.getCoverage()))
+            .append("createdAt", report.getCreatedAt())
+            .append("updatedAt", report.getUpdatedAt());
+    }
+    
+    private Document convertCoverageToDocument(Coverage coverage) {
+        if (coverage == null) return null;
+        
+        Document coverageDoc = new Document()
+            .append("coveragePercentage", coverage.getCoveragePercentage())
+            .append("coveredCount", coverage.getCoveredCount())
+            .append("uncoveredCount", coverage.getUncoveredCount());
+        
+        // Convert covered features with full details
+        List<Document> coveredFeaturesDocs = new ArrayList<>();
+        if (coverage.getCoveredFeatures() != null) {
+            for (CoveredFeature coveredFeature : coverage.getCoveredFeatures()) {
+                Document coveredDoc = new Document();
+
+                // Add reference feature ID
+                coveredDoc.append("referenceFeatureId", coveredFeature.getReferenceFeatureId());
+
+                // Matched feature details
+                if (coveredFeature.getMatchedFeature() != null) {
+                    Document matchedDoc = new Document()
+                        .append("feature", coveredFeature.getMatchedFeature().getFeature())
+                        .append("description", coveredFeature.getMatchedFeature().getDescription())
+                        .append("sectionTextRef", coveredFeature.getMatchedFeature().getSectionTextRef());
+                    coveredDoc.append("matchedFeature", matchedDoc);
+                }
+                
+                coveredDoc.append("similarity", coveredFeature.getSimilarity());
+                coveredFeaturesDocs.add(coveredDoc);
+            }
+        }
+        coverageDoc.append("coveredFeatures", coveredFeaturesDocs);
+        
+        // Convert uncovered features with full details
+        List<Document> uncoveredFeaturesDocs = new ArrayList<>();
+        if (coverage.getUncoveredFeatures() != null) {
+            for (UncoveredFeature uncoveredFeature : coverage.getUncoveredFeatures()) {
+                Document uncoveredDoc = new Document();
+
+                uncoveredDoc.append("referenceFeatureId", uncoveredFeature.getReferenceFeatureId());
+                uncoveredDoc.append("similarity", uncoveredFeature.getSimilarity());
+                uncoveredFeaturesDocs.add(uncoveredDoc);
+            }
+        }
+        coverageDoc.append("uncoveredFeatures", uncoveredFeaturesDocs);
+        
+        return coverageDoc;
+    }
+}
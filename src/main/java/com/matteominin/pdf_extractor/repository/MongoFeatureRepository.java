@@ -0,0 +1,332 @@
+package com.matteominin.pdf_extractor.repository;
+
+import com.matteominin.pdf_extractor.config.DBManager;
+import com.matteominin.pdf_extractor.model.pdf.Feature;
+import com.matteominin.pdf_extractor.model.pdf.FeatureView;
+import com.matteominin.pdf_extractor.model.feature.SummaryFeature;
+import com.matteominin.pdf_extractor.model.ingestion.BulkUpsertResult;
+import com.matteominin.pdf_extractor.util.MongoStreams;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.result.InsertOneResult;
+
+import jakarta.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Stream;
+
+@Repository
+@Profile("!embedded")
+public class MongoFeatureRepository implements FeatureRepository {
+    
+    private static final Logger logger = LoggerFactory.getLogger(MongoFeatureRepository.class);
+
+    // Served by the partial createdAt/_id index on documents with embeddings (see IndexManager)
+    private static final Document EMBEDDING_ORDER = new Document("createdAt", 1).append("_id", 1);
+    
+    @Value("${app.mongodb.collection:features}")
+    private String collectionName;
+    
+    @Value("${app.mongodb.collection.summary:summary_features}")
+    private String summaryCollectionName;
+
+    @Value("${app.mongodb.stream.batch-size:500}")
+    private int streamBatchSize;
+
+    @Value("${app.mongodb.bulk.chunk-size:500}")
+    private int bulkChunkSize;
+
+    @Autowired
+    private DBManager dbManager;
+    
+    private MongoCollection<Document> collection;
+    private MongoCollection<Document> summaryCollection;
+    
+    // Collections come from the shared client in DBManager, so there is a single connection pool
+    @PostConstruct
+    public void initCollections() {
+        collection = dbManager.getCollection(collectionName);
+        summaryCollection = dbManager.getCollection(summaryCollectionName);
+    }
+
+    @Override
+    public List<Feature> findAll() {
+        return collection.find()
+        .map(this::convertToFeature)
+        .into(new ArrayList<>());
+    }
+
+    // Efficient method to get only features with embeddings (for clustering)
+    @Override
+    public List<Feature> findAllWithEmbeddings() {
+        return collection.find(new Document("embedding", new Document("$exists", true).append("$ne", null)))
+        .sort(EMBEDDING_ORDER)
+        .map(this::convertToFeature)
+        .into(new ArrayList<>());
+    }
+
+    // Stream-based method for large datasets
+    @Override
+    public Stream<Feature> streamAllWithEmbeddings() {
+        return streamAllWithEmbeddings(streamBatchSize, null);
+    }
+
+    /**
+     * Streams the features with embeddings straight from a cursor; only the current cursor
+     * batch is held in memory. The cursor is closed when the stream is exhausted or closed.
+     *
+     * @param batchSize documents fetched per round trip
+     * @param fields fields to read (see {@link #FEATURE_FIELDS}), or null for whole documents
+     */
+    @Override
+    public Stream<Feature> streamAllWithEmbeddings(int batchSize, List<String> fields) {
+        return MongoStreams.stream(
+            collection.find(new Document("embedding", new Document("$exists", true).append("$ne", null))).sort(EMBEDDING_ORDER),
+            batchSize, fields, this::convertToFeature);
+    }
+
+    /**
+     * Streams all features from a cursor, see {@link #streamAllWithEmbeddings(int, List)}.
+     */
+    @Override
+    public Stream<Feature> streamAll(int batchSize, List<String> fields) {
+        return MongoStreams.stream(collection.find(), batchSize, fields, this::convertToFeature);
+    }
+
+    @Override
+    public Stream<Feature> streamAll() {
+        return streamAll(streamBatchSize, null);
+    }
+
+    /**
+     * Streams the listing view of the features in {@code _id} order. The projection is applied
+     * by the server, so embeddings and section texts are neither transferred nor decoded unless
+     * included. Paging is keyset-based: pass the last ID of the previous page as {@code after}.
+     *
+     * @param include optional heavy fields to read, from {@link #OPTIONAL_VIEW_FIELDS}
+     * @param after only features with a greater ID, or null to start from the first one
+     * @param limit maximum number of features, or 0 for no limit
+     */
+    @Override
+    public Stream<FeatureView> streamViews(Collection<String> include, String after, int limit) {
+        List<String> fields = new ArrayList<>(VIEW_FIELDS);
+        fields.addAll(include);
+        Document filter = after != null
+            ? new Document("_id", new Document("$gt", new ObjectId(after)))
+            : new Document();
+        int batchSize = limit > 0 ? Math.min(limit, streamBatchSize) : streamBatchSize;
+        return MongoStreams.stream(collection.find(filter).sort(new Document("_id", 1)).limit(limit),
+            batchSize, fields, this::convertToView);
+    }
+
+    // Efficient method to get only id, feature text, and embedding (minimal data for clustering)
+    public List<Document> findEmbeddingsOnly() {
+        return collection.find(new Document("embedding", new Document("$exists", true).append("$ne", null)))
+        .sort(EMBEDDING_ORDER)
+        .projection(new Document("_id", 1).append("feature", 1).append("embedding", 1))
+        .into(new ArrayList<>());
+    }
+
+    // Features by ID without embeddings, used to rebuild stored clustering results
+    @Override
+    public List<Feature> findByIds(Collection<String> ids) {
+        List<ObjectId> objectIds = ids.stream().map(ObjectId::new).toList();
+        return collection.find(new Document("_id", new Document("$in", objectIds)))
+        .projection(new Document("embedding", 0))
+        .map(this::convertToFeature)
+        .into(new ArrayList<>());
+    }
+
+    /**
+     * Version of the feature corpus, derived from the document count, the most recent insertion
+     * and the most recent update. Any insert, update or delete yields a different version.
+     *
+     * @return opaque corpus version string
+     */
+    @Override
+    public String getCorpusVersion() {
+        long count = collection.estimatedDocumentCount();
+        Document lastInserted = collection.find()
+            .projection(new Document("_id", 1))
+            .sort(new Document("_id", -1))
+            .first();
+        Document lastUpdated = collection.find()
+            .projection(new Document("updatedAt", 1))
+            .sort(new Document("updatedAt", -1))
+            .first();
+
+        String lastId = lastInserted != null ? lastInserted.getObjectId("_id").toHexString() : "none";
+        Date updatedAt = lastUpdated != null ? lastUpdated.getDate("updatedAt") : null;
+        return count + ":" + lastId + ":" + (updatedAt != null ? updatedAt.getTime() : 0);
+    }
+
+    @SuppressWarnings("unchecked")
+    private FeatureView convertToView(Document doc) {
+        return FeatureView.builder()
+            .id(doc.getObjectId("_id").toString())
+            .feature(doc.getString("feature"))
+            .description(doc.getString("description"))
+            .category(doc.getString("category"))
+            .evidence(doc.getString("evidence"))
+            .confidence(doc.getDouble("confidence"))
+            .source_title(doc.getString("sourceTitle"))
+            .filePath(doc.getString("filePath"))
+            .section_text(doc.getString("section_text"))
+            .embedding((List<Double>) doc.get("embedding"))
+            .createdAt(doc.getDate("createdAt"))
+            .updatedAt(doc.getDate("updatedAt"))
+            .build();
+    }
+
+    private Feature convertToFeature(Document doc) {
+        Feature feature = new Feature();
+        feature.setId(doc.getObjectId("_id").toString());
+        feature.setFeature(doc.getString("feature"));
+        feature.setDescription(doc.getString("description"));
+        feature.setCategory(doc.getString("category"));
+        feature.setEvidence(doc.getString("evidence"));
+        feature.setConfidence(doc.getDouble("confidence"));
+        feature.setSource_title(doc.getString("sourceTitle"));
+        feature.setFilePath(doc.getString("filePath"));
+        if (doc.get("embedding") != null) {
+            @SuppressWarnings("unchecked")
+            List<Double> embedding = (List<Double>) doc.get("embedding");
+            feature.setEmbedding(embedding);
+        }
+        feature.setCreatedAt(doc.getDate("createdAt"));
+        feature.setUpdatedAt(doc.getDate("updatedAt"));
+        return feature;
+    }
+    
+    @Override
+    public String saveFeature(Feature feature) {
+        try {
+            feature.setCreatedAt(new Date());
+            feature.setUpdatedAt(new Date());
+            
+            Document doc = convertToDocument(feature);
+            InsertOneResult result = collection.insertOne(doc);
+            
+            if (result.wasAcknowledged()) {
+                ObjectId insertedId = result.getInsertedId().asObjectId().getValue();
+                feature.setId(insertedId.toString());
+                logger.debug("Feature saved successfully with ID: {}", insertedId);
+                return insertedId.toString();
+            } else {
+                throw new RuntimeException("Failed to save feature to database");
+            }
+        } catch (Exception e) {
+            logger.error("Error saving feature: {}", e.getMessage(), e);
+            throw new RuntimeException("Database save operation failed", e);
+        }
+    }
+
+    /**
+     * Saves the features with chunked, unordered upserts keyed by a hash of their text and
+     * source file, so saving the same features again does not create duplicates. The IDs of
+     * the stored documents are set on the features.
+     *
+     * @param features features to save
+     * @return IDs in input order and per-chunk inserted/matched/failed counts
+     */
+    @Override
+    public BulkUpsertResult saveFeatureList(List<Feature> features) {
+        List<Document> docs = new ArrayList<>();
+        Date now = new Date();
+        for (Feature feature : features) {
+            feature.setCreatedAt(now);
+            feature.setUpdatedAt(now);
+            docs.add(convertToDocument(feature).append("contentHash", FeatureRepository.contentHash(feature)));
+        }
+        try {
+            BulkUpsertResult result = ContentHashUpserts.upsert(collection, docs, bulkChunkSize);
+            for (int i = 0; i < features.size(); i++) {
+                String id = result.getIds().get(i);
+                features.get(i).setId(id.isEmpty() ? null : id);
+            }
+            logger.debug("Batch saved {} features: {} inserted, {} matched, {} failed", docs.size(),
+                result.getInserted(), result.getMatched(), result.getFailed());
+            return result;
+        } catch (Exception e) {
+            logger.error("Error saving feature list: {}", e.getMessage(), e);
+            throw new RuntimeException("Database batch save operation failed", e);
+        }
+    }
+    
+    private Document convertToDocument(Feature feature) {
+        return new Document()
+            .append("feature", feature.getFeature())
+            .append("description", feature.getDescription())
+            .append("category", feature.getCategory())
+            .append("evidence", feature.getEvidence())
+            .append("confidence", feature.getConfidence())
+            .append("sourceTitle", feature.getSource_title())
+            .append("filePath", feature.getFilePath())
+            .append("section_text", feature.getSection_text())
+            .append("embedding", feature.getEmbedding())
+            .append("createdAt", feature.getCreatedAt())
+            .append("updatedAt", feature.getUpdatedAt());
+    }
+    
+    // SummaryFeature methods
+    public List<String> saveSummaryFeatures(List<SummaryFeature> summaryFeatures) {
+        List<String> ids = new ArrayList<>();
+        List<Document> docs = new ArrayList<>();
+        Date now = new Date();
+        
+        for (SummaryFeature summaryFeature : summaryFeatures) {
+            docs.add(convertToSummaryDocument(summaryFeature, now));
+        }
+        
+        try {
+            summaryCollection.insertMany(docs);
+            for (Document doc : docs) {
+                ObjectId id = doc.getObjectId("_id");
+                ids.add(id != null ? id.toString() : "");
+            }
+            logger.debug("Batch saved {} summary features", docs.size());
+            return ids;
+        } catch (Exception e) {
+            logger.error("Error saving summary feature list: {}", e.getMessage(), e);
+            throw new RuntimeException("Database batch save operation failed", e);
+        }
+    }
+    
+    public List<SummaryFeature> findAllSummaryFeatures() {
+        return summaryCollection.find()
+            .map(this::convertToSummaryFeature)
+            .into(new ArrayList<>());
+    }
+    
+    private Document convertToSummaryDocument(SummaryFeature summaryFeature, Date timestamp) {
+        return new Document()
+            .append("feature", summaryFeature.getFeature())
+            .append("description", summaryFeature.getDescription())
+            .append("count", summaryFeature.getCount())
+            .append("example", summaryFeature.getExample())
+            .append("embedding", summaryFeature.getEmbedding())
+            .append("createdAt", timestamp)
+            .append("updatedAt", timestamp);
+    }
+    
+    private SummaryFeature convertToSummaryFeature(Document doc) {
+        return SummaryFeature.builder()
+            .feature(doc.getString("feature"))
+            .description(doc.getString("description"))
+            .count(doc.getString("count"))
+            .example(doc.getString("example"))
+            .embedding(doc.getList("embedding", Double.class))
+            .build();
+    }
+}
@@ -0,0 +1,234 @@
+package com.matteominin.pdf_extractor.repository;
+
+import com.matteominin.pdf_extractor.config.DBManager;
+import com.matteominin.pdf_extractor.model.feature.SummaryFeature;
+import com.matteominin.pdf_extractor.model.feature.SummaryFeatureView;
+import com.matteominin.pdf_extractor.model.ingestion.BulkUpsertResult;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Projections;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@Repository
+@Profile("!embedded")
+public class MongoSummaryFeatureRepository implements SummaryFeatureRepository {
+    
+    private static final Logger logger = LoggerFactory.getLogger(MongoSummaryFeatureRepository.class);
+    
+    @Value("${app.mongodb.collection.summary:summary_features}")
+    private String collectionName;
+
+    @Value("${app.mongodb.bulk.chunk-size:500}")
+    private int bulkChunkSize;
+    
+    @Autowired
+    private DBManager dbManager;
+    
+    private MongoCollection<Document> getCollection() {
+        return dbManager.getCollection(collectionName);
+    }
+    
+    /**
+     * Save a list of summary features to MongoDB. Features are upserted in unordered chunks
+     * keyed by a hash of their text and description, so saving them again is a no-op.
+     * 
+     * @param summaryFeatures List of summary features to save
+     * @return IDs of saved summary features in input order and per-chunk counts
+     */
+    @Override
+    public BulkUpsertResult saveAll(List<SummaryFeature> summaryFeatures) {
+        List<Document> docs = new ArrayList<>();
+        Date now = new Date();
+        
+        for (SummaryFeature summaryFeature : summaryFeatures) {
+            docs.add(convertToDocument(summaryFeature, now)
+                .append("contentHash", SummaryFeatureRepository.contentHash(summaryFeature)));
+        }
+        
+        try {
+            MongoCollection<Document> collection = getCollection();
+            BulkUpsertResult result = ContentHashUpserts.upsert(collection, docs, bulkChunkSize);
+            
+            logger.debug("Batch saved {} summary features: {} inserted, {} matched, {} failed", docs.size(),
+                result.getInserted(), result.getMatched(), result.getFailed());
+            return result;
+        } catch (Exception e) {
+            logger.error("Error saving summary features: {}", e.getMessage(), e);
+            throw new RuntimeException("Database batch save operation failed", e);
+        }
+    }
+    
+    /**
+     * Find all summary features.
+     * 
+     * @return List of all summary features
+     */
+    @Override
+    public List<SummaryFeature> findAll() {
+        try {
+            MongoCollection<Document> collection = getCollection();
+            return collection.find()
+                .map(MongoSummaryFeatureRepository::convertFromDocument)
+                .into(new ArrayList<>());
+        } catch (Exception e) {
+            logger.error("Error retrieving summary features: {}", e.getMessage(), e);
+            throw new RuntimeException("Database retrieval operation failed", e);
+        }
+    }
+    
+    /**
+     * Find the listing view of all summary features, projected by the server.
+     * 
+     * @param include optional heavy fields to read, from {@link #OPTIONAL_VIEW_FIELDS}
+     * @return List of summary feature views
+     */
+    @Override
+    public List<SummaryFeatureView> findAllViews(Collection<String> include) {
+        try {
+            List<String> fields = new ArrayList<>(VIEW_FIELDS);
+            fields.addAll(include);
+            MongoCollection<Document> collection = getCollection();
+            return collection.find()
+                .projection(Projections.include(fields))
+                .map(this::convertToView)
+                .into(new ArrayList<>());
+        } catch (Exception e) {
+            logger.error("Error retrieving summary features: {}", e.getMessage(), e);
+            throw new RuntimeException("Database retrieval operation failed", e);
+        }
+    }
+    
+    /**
+     * Find summary feature by ID.
+     * 
+     * @param id The ID of the summary feature to find
+     * @return The summary feature or null if not found
+     */
+    @Override
+    public SummaryFeature findById(String id) {
+        try {
+            MongoCollection<Document> collection = getCollection();
+            Document doc = collection.find(new Document("_id", new ObjectId(id))).first();
+            return doc != null ? convertFromDocument(doc) : null;
+        } catch (Exception e) {
+            logger.error("Error retrieving summary feature by ID {}: {}", id, e.getMessage(), e);
+            throw new RuntimeException("Database retrieval operation failed", e);
+        }
+    }
+
+    /**
+     * Find summary features by ID in a single query, without their embeddings.
+     * IDs that are not valid or not found are absent from the result.
+     * 
+     * @param ids The IDs of the summary features to find
+     * @return Summary features keyed by ID
+     */
+    @Override
+    public Map<String, SummaryFeature> findByIds(Collection<String> ids) {
+        try {
+            List<ObjectId> objectIds = ids.stream()
+                .filter(ObjectId::isValid)
+                .distinct()
+                .map(ObjectId::new)
+                .toList();
+            Map<String, SummaryFeature> featuresById = new LinkedHashMap<>();
+            if (objectIds.isEmpty()) {
+                return featuresById;
+            }
+
+            MongoCollection<Document> collection = getCollection();
+            collection.find(new Document("_id", new Document("$in", objectIds)))
+                .projection(new Document("embedding", 0))
+                .map(MongoSummaryFeatureRepository::convertFromDocument)
+                .forEach(feature -> featuresById.put(feature.getId(), feature));
+            return featuresById;
+        } catch (Exception e) {
+            logger.error("Error retrieving summary features by IDs: {}", e.getMessage(), e);
+            throw new RuntimeException("Database retrieval operation failed", e);
+        }
+    }
+
+    /**
+     * Delete all summary features.
+     * 
+     * @return number of deleted documents
+     */
+    @Override
+    public long deleteAll() {
+        try {
+            MongoCollection<Document> collection = getCollection();
+            long deletedCount = collection.deleteMany(new Document()).getDeletedCount();
+            logger.debug("Deleted {} summary features", deletedCount);
+            return deletedCount;
+        } catch (Exception e) {
+            logger.error("Error deleting summary features: {}", e.getMessage(), e);
+            throw new RuntimeException("Database delete operation failed", e);
+        }
+    }
+    
+    /**
+     * Count total summary features.
+     * 
+     * @return count of summary features
+     */
+    @Override
+    public long count() {
+        try {
+            MongoCollection<Document> collection = getCollection();
+            return collection.countDocuments();
+        } catch (Exception e) {
+            logger.error("Error counting summary features: {}", e.getMessage(), e);
+            throw new RuntimeException("Database count operation failed", e);
+        }
+    }
+    
+    private Document convertToDocument(SummaryFeature summaryFeature, Date timestamp) {
+        return new Document()
+            .append("feature", summaryFeature.getFeature())
+            .append("description", summaryFeature.getDescription())
+            .append("count", summaryFeature.getCount())
+            .append("example", summaryFeature.getExample())
+            .append("embedding", summaryFeature.getEmbedding())
+            .append("checklist", summaryFeature.getChecklist())
+            .append("createdAt", timestamp)
+            .append("updatedAt", timestamp);
+    }
+    
+    private SummaryFeatureView convertToView(Document doc) {
+        return SummaryFeatureView.builder()
+            .id(doc.getObjectId("_id").toString())
+            .feature(doc.getString("feature"))
+            .description(doc.getString("description"))
+            .count(doc.getString("count"))
+            .checklist(doc.getList("checklist", String.class))
+            .example(doc.getString("example"))
+            .embedding(doc.getList("embedding", Double.class))
+            .build();
+    }
+    
+    // Also used by SummaryFeatureChangeFeed for the documents of change events
+    static SummaryFeature convertFromDocument(Document doc) {
+        return SummaryFeature.builder()
+                .id(doc.getObjectId("_id") != null ? doc.getObjectId("_id").toString() : null)
+            .feature(doc.getString("feature"))
+            .description(doc.getString("description"))
+            .count(doc.getString("count"))
+            .embedding(doc.getList("embedding", Double.class))
+            .checklist(doc.getList("checklist", String.class))
+            .example(doc.getString("example"))
+            .build();
+    }
+}
@@ -1,7 +1,9 @@
 package com.matteominin.pdf_extractor.repository;
 
 import com.matteominin.pdf_extractor.config.DBManager;
+import com.matteominin.pdf_extractor.model.ingestion.BulkUpsertResult;
 import com.matteominin.pdf_extractor.model.pdf.Feature;
+import com.matteominin.pdf_extractor.util.MongoStreams;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.result.InsertOneResult;
 import org.bson.Document;
@@ -10,19 +12,31 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Repository;
 
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
+@Profile("!embedded")
 public class NewFeatureRepository {
     
     private static final Logger logger = LoggerFactory.getLogger(NewFeatureRepository.class);
+
+    // Served by the partial createdAt/_id index on documents with embeddings (see IndexManager)
+    private static final Document EMBEDDING_ORDER = new Document("createdAt", 1).append("_id", 1);
     
     @Value("${app.mongodb.collection:features}")
     private String collectionName;
+
+    @Value("${app.mongodb.stream.batch-size:500}")
+    private int streamBatchSize;
+
+    @Value("${app.mongodb.bulk.chunk-size:500}")
+    private int bulkChunkSize;
     
     @Autowired
     private DBManager dbManager;
@@ -48,6 +62,7 @@ public class NewFeatureRepository {
         try {
             MongoCollection<Document> collection = getCollection();
             return collection.find(new Document("embedding", new Document("$exists", true).append("$ne", null)))
+                .sort(EMBEDDING_ORDER)
                 .map(this::convertToFeature)
                 .into(new ArrayList<>());
         } catch (Exception e) {
@@ -57,8 +72,22 @@ public class NewFeatureRepository {
     }
 
     // Stream-based method for large datasets
-    public java.util.stream.Stream<Feature> streamAllWithEmbeddings() {
-        return findAllWithEmbeddings().stream();
+    public Stream<Feature> streamAllWithEmbeddings() {
+        return streamAllWithEmbeddings(streamBatchSize, null);
+    }
+
+    /**
+     * Streams the features with embeddings straight from a cursor; only the current cursor
+     * batch is held in memory. The cursor is closed when the stream is exhausted or closed.
+     *
+     * @param batchSize documents fetched per round trip
+     * @param fields fields to read, or null for whole documents
+     */
+    public Stream<Feature> streamAllWithEmbeddings(int batchSize, List<String> fields) {
+        MongoCollection<Document> collection = getCollection();
+        return MongoStreams.stream(
+            collection.find(new Document("embedding", new Document("$exists", true).append("$ne", null))).sort(EMBEDDING_ORDER),
+            batchSize, fields, this::convertToFeature);
     }
 
     // Efficient method to get only id, feature text, and embedding (minimal data for clustering)
@@ -66,6 +95,7 @@ public class NewFeatureRepository {
         try {
             MongoCollection<Document> collection = getCollection();
             return collection.find(new Document("embedding", new Document("$exists", true).append("$ne", null)))
+                .sort(EMBEDDING_ORDER)
                 .projection(new Document("_id", 1).append("feature", 1).append("embedding", 1))
                 .into(new ArrayList<>());
         } catch (Exception e) {
@@ -117,28 +147,30 @@ public class NewFeatureRepository {
         }
     }
 
-    public List<String> saveList(List<Feature> features) {
-        List<String> ids = new ArrayList<>();
+    /**
+     * Saves the features with chunked, unordered upserts keyed by content hash, see
+     * {@link FeatureRepository#saveFeatureList(List)}.
+     *
+     * @param features features to save
+     * @return IDs in input order and per-chunk inserted/matched/failed counts
+     */
+    public BulkUpsertResult saveList(List<Feature> features) {
         List<Document> docs = new ArrayList<>();
         Date now = new Date();
         
         for (Feature feature : features) {
             feature.setCreatedAt(now);
             feature.setUpdatedAt(now);
-            docs.add(convertToDocument(feature));
+            docs.add(convertToDocument(feature).append("contentHash", FeatureRepository.contentHash(feature)));
         }
         
         try {
             MongoCollection<Document> collection = getCollection();
-            collection.insertMany(docs);
-            
-            for (Document doc : docs) {
-                ObjectId id = doc.getObjectId("_id");
-                ids.add(id != null ? id.toString() : "");
-            }
+            BulkUpsertResult result = ContentHashUpserts.upsert(collection, docs, bulkChunkSize);
             
-            logger.debug("Batch saved {} features", docs.size());
-            return ids;
+            logger.debug("Batch saved {} features: {} inserted, {} matched, {} failed", docs.size(),
+                result.getInserted(), result.getMatched(), result.getFailed());
+            return result;
         } catch (Exception e) {
             logger.error("Error saving feature list: {}", e.getMessage(), e);
             throw new RuntimeException("Database batch save operation failed", e);
@@ -0,0 +1,85 @@
+package com.matteominin.pdf_extractor.repository;
+
+import com.matteominin.pdf_extractor.config.ChangeStreamListener;
+import com.matteominin.pdf_extractor.config.ChangeStreamWatcher;
+import com.matteominin.pdf_extractor.model.feature.SummaryFeature;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+/**
+ * Changes of the summary features collection, read from its MongoDB change stream and
+ * converted to {@link SummaryFeature}s. Only present when change streams are enabled.
+ */
+@Component
+@Profile("!embedded")
+@ConditionalOnProperty(name = "app.mongodb.change-streams.enabled", havingValue = "true")
+public class SummaryFeatureChangeFeed {
+
+    /**
+     * Receives the changes of the summary features, on the watcher thread, in commit order.
+     */
+    public interface Listener {
+
+        void onSaved(SummaryFeature summaryFeature);
+
+        void onDeleted(String id);
+
+        /**
+         * Changes may have been missed: anything derived from the summary features must be
+         * discarded.
+         */
+        void onReset();
+    }
+
+    @Autowired
+    private ChangeStreamWatcher changeStreamWatcher;
+
+    @Value("${app.mongodb.collection.summary:summary_features}")
+    private String collectionName;
+
+    /**
+     * Registers a listener. Must be called before the application is ready, typically from a
+     * {@code @PostConstruct} method.
+     */
+    public void register(Listener listener) {
+        changeStreamWatcher.register(collectionName, new ChangeStreamListener() {
+            @Override
+            public void onChange(ChangeStreamDocument<Document> event) {
+                if (event.getDocumentKey() == null) {
+                    listener.onReset();
+                    return;
+                }
+                String id = event.getDocumentKey().getObjectId("_id").getValue().toString();
+                switch (event.getOperationType()) {
+                    case INSERT, UPDATE, REPLACE -> {
+                        // No full document: the feature was deleted before the update was looked up
+                        if (event.getFullDocument() != null) {
+                            listener.onSaved(MongoSummaryFeatureRepository.convertFromDocument(event.getFullDocument()));
+                        } else {
+                            listener.onDeleted(id);
+                        }
+                    }
+                    case DELETE -> listener.onDeleted(id);
+                    default -> listener.onReset();
+                }
+            }
+
+            @Override
+            public void onReset() {
+                listener.onReset();
+            }
+        });
+    }
+
+    /**
+     * @return whether changes are currently being delivered
+     */
+    public boolean isActive() {
+        return changeStreamWatcher.isActive(collectionName);
+    }
+}
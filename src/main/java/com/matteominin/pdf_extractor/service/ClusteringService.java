@@ -2,17 +2,26 @@ package com.matteominin.pdf_extractor.service;
 
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.stream.IntStream;
 
 import org.apache.commons.math3.linear.ArrayRealVector;
 import org.apache.commons.math3.linear.RealVector;
 
+import com.matteominin.pdf_extractor.util.BallTree;
 import com.matteominin.pdf_extractor.util.CosineDistance;
+import com.matteominin.pdf_extractor.util.Dendrogram;
 
 import smile.clustering.DBSCAN;
+import smile.clustering.PartitionClustering;
 
 public class ClusteringService {    
+
+    private static final int UNDEFINED = -1;
+    private static final int QUEUED = -2;
+
     /**
      * Clusters embeddings using cosine similarity with DBSCAN algorithm.
      * This method groups similar embeddings together based on their cosine distance.
@@ -41,7 +50,7 @@ public class ClusteringService {
             int clusterLabel = labels[i];
             String id = ids.get(i);
             
-            if (clusterLabel == -1) {
+            if (clusterLabel == PartitionClustering.OUTLIER) {
                 // Noise point (not assigned to any cluster)
                 noisePoints.add(id);
             } else {
@@ -56,6 +65,256 @@ public class ClusteringService {
         return clusters;
     }
 
+    /**
+     * DBSCAN variant whose range queries are served by a ball tree over unit-normalized
+     * embeddings instead of a linear scan with {@link CosineDistance}. All range queries
+     * run in parallel up front; cluster expansion then follows the same order as Smile's
+     * DBSCAN, so the resulting clusters are the same as {@link #clusterWithDBSCAN}.
+     * Zero vectors have no neighbors and always end up as noise.
+     *
+     * @param ids List of identifiers corresponding to each embedding
+     * @param embeddings 2D array of embedding vectors
+     * @param epsilon Maximum cosine distance for points to be in the same neighborhood (0.0 to 2.0)
+     * @param minPts Minimum number of points in a neighborhood to form a cluster
+     * @return List of clusters, where each cluster contains the IDs of similar embeddings
+     */
+    public static List<List<String>> clusterWithIndexedDBSCAN(List<String> ids, double[][] embeddings,
+            double epsilon, int minPts) {
+        if (ids.size() != embeddings.length) {
+            throw new IllegalArgumentException("Number of IDs must match number of embeddings");
+        }
+        if (minPts < 1) {
+            throw new IllegalArgumentException("Invalid minPts: " + minPts);
+        }
+        if (epsilon <= 0.0) {
+            throw new IllegalArgumentException("Invalid epsilon: " + epsilon);
+        }
+
+        int n = embeddings.length;
+        BallTree tree = new BallTree(BallTree.normalize(embeddings));
+        int[][] neighbors = new int[n][];
+        IntStream.range(0, n).parallel().forEach(i -> neighbors[i] = tree.rangeQuery(i, epsilon));
+
+        int[] labels = new int[n];
+        Arrays.fill(labels, UNDEFINED);
+        int clusterCount = 0;
+
+        for (int i = 0; i < n; i++) {
+            if (labels[i] != UNDEFINED) {
+                continue;
+            }
+            if (neighbors[i].length < minPts) {
+                labels[i] = PartitionClustering.OUTLIER;
+                continue;
+            }
+
+            labels[i] = clusterCount;
+            List<Integer> seeds = new ArrayList<>();
+            for (int neighbor : neighbors[i]) {
+                if (labels[neighbor] == UNDEFINED) {
+                    labels[neighbor] = QUEUED;
+                }
+                seeds.add(neighbor);
+            }
+
+            for (int s = 0; s < seeds.size(); s++) {
+                int point = seeds.get(s);
+                if (labels[point] == PartitionClustering.OUTLIER) {
+                    labels[point] = clusterCount;
+                }
+                if (labels[point] == UNDEFINED || labels[point] == QUEUED) {
+                    labels[point] = clusterCount;
+                    if (neighbors[point].length >= minPts) {
+                        for (int neighbor : neighbors[point]) {
+                            int label = labels[neighbor];
+                            if (label == UNDEFINED) {
+                                labels[neighbor] = QUEUED;
+                            }
+                            if (label == UNDEFINED || label == PartitionClustering.OUTLIER) {
+                                seeds.add(neighbor);
+                            }
+                        }
+                    }
+                }
+            }
+            clusterCount++;
+        }
+
+        List<List<String>> clusters = new ArrayList<>();
+        for (int k = 0; k < clusterCount; k++) {
+            clusters.add(new ArrayList<>());
+        }
+        for (int i = 0; i < n; i++) {
+            if (labels[i] != PartitionClustering.OUTLIER) {
+                clusters.get(labels[i]).add(ids.get(i));
+            }
+        }
+
+        return clusters;
+    }
+
+    /**
+     * Single-linkage hierarchy over cosine distance, built as the minimum spanning tree of the
+     * complete similarity graph with Prim's algorithm: O(n^2) time and O(n) extra memory.
+     * Cutting it at distance 1 - t gives the connected components of the graph whose edges
+     * have similarity of at least t.
+     *
+     * @param embeddings 2D array of embedding vectors
+     * @return the dendrogram over the embeddings
+     */
+    public static Dendrogram singleLinkageDendrogram(double[][] embeddings) {
+        int n = embeddings.length;
+        double[][] vectors = BallTree.normalize(embeddings);
+
+        int[] left = new int[Math.max(0, n - 1)];
+        int[] right = new int[Math.max(0, n - 1)];
+        double[] heights = new double[Math.max(0, n - 1)];
+        if (n == 0) {
+            return new Dendrogram(0, left, right, heights);
+        }
+
+        boolean[] inTree = new boolean[n];
+        double[] distance = new double[n];
+        int[] closest = new int[n];
+        Arrays.fill(distance, Double.POSITIVE_INFINITY);
+
+        int current = 0;
+        inTree[current] = true;
+        for (int edge = 0; edge < n - 1; edge++) {
+            final int added = current;
+            IntStream.range(0, n).parallel().forEach(k -> {
+                if (!inTree[k]) {
+                    double d = cosineDistance(vectors[added], vectors[k]);
+                    if (d < distance[k]) {
+                        distance[k] = d;
+                        closest[k] = added;
+                    }
+                }
+            });
+
+            int next = -1;
+            for (int k = 0; k < n; k++) {
+                if (!inTree[k] && (next < 0 || distance[k] < distance[next])) {
+                    next = k;
+                }
+            }
+
+            left[edge] = closest[next];
+            right[edge] = next;
+            heights[edge] = distance[next];
+            inTree[next] = true;
+            current = next;
+        }
+
+        return new Dendrogram(n, left, right, heights);
+    }
+
+    /**
+     * Average-linkage (UPGMA) hierarchy over cosine distance, built with the nearest-neighbor
+     * chain algorithm and Lance-Williams updates on a condensed float distance matrix:
+     * O(n^2) time and n(n-1)/2 floats of memory.
+     *
+     * @param embeddings 2D array of embedding vectors
+     * @return the dendrogram over the embeddings
+     */
+    public static Dendrogram averageLinkageDendrogram(double[][] embeddings) {
+        int n = embeddings.length;
+        if ((long) n * (n - 1) / 2 > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Too many embeddings for average linkage: " + n);
+        }
+        double[][] vectors = BallTree.normalize(embeddings);
+
+        float[] distances = new float[n * (n - 1) / 2];
+        IntStream.range(0, n).parallel().forEach(i -> {
+            for (int j = i + 1; j < n; j++) {
+                distances[condensedIndex(n, i, j)] = (float) cosineDistance(vectors[i], vectors[j]);
+            }
+        });
+
+        int[] left = new int[Math.max(0, n - 1)];
+        int[] right = new int[Math.max(0, n - 1)];
+        double[] heights = new double[Math.max(0, n - 1)];
+
+        boolean[] active = new boolean[n];
+        int[] sizes = new int[n];
+        Arrays.fill(active, true);
+        Arrays.fill(sizes, 1);
+
+        int[] chain = new int[n];
+        int chainLength = 0;
+        int merges = 0;
+        int nextStart = 0;
+
+        while (merges < n - 1) {
+            if (chainLength == 0) {
+                while (!active[nextStart]) {
+                    nextStart++;
+                }
+                chain[chainLength++] = nextStart;
+            }
+
+            int a;
+            int b;
+            while (true) {
+                a = chain[chainLength - 1];
+                // Prefer the previous chain element on ties so reciprocal pairs are detected
+                int previous = chainLength > 1 ? chain[chainLength - 2] : -1;
+                b = previous;
+                double best = previous >= 0 ? distances[condensedIndex(n, a, previous)] : Double.POSITIVE_INFINITY;
+                for (int k = 0; k < n; k++) {
+                    if (active[k] && k != a) {
+                        double d = distances[condensedIndex(n, a, k)];
+                        if (d < best) {
+                            best = d;
+                            b = k;
+                        }
+                    }
+                }
+                if (b == previous) {
+                    break;
+                }
+                chain[chainLength++] = b;
+            }
+            chainLength -= 2;
+
+            // Merge a into b and update distances to b with the Lance-Williams formula
+            double height = distances[condensedIndex(n, a, b)];
+            for (int k = 0; k < n; k++) {
+                if (active[k] && k != a && k != b) {
+                    int ka = condensedIndex(n, k, a);
+                    int kb = condensedIndex(n, k, b);
+                    distances[kb] = (float) ((sizes[a] * distances[ka] + sizes[b] * distances[kb]) / (double) (sizes[a] + sizes[b]));
+                }
+            }
+            active[a] = false;
+            sizes[b] += sizes[a];
+
+            left[merges] = a;
+            right[merges] = b;
+            heights[merges] = height;
+            merges++;
+        }
+
+        return new Dendrogram(n, left, right, heights);
+    }
+
+    private static int condensedIndex(int n, int i, int j) {
+        if (i > j) {
+            int tmp = i;
+            i = j;
+            j = tmp;
+        }
+        return (int) ((long) i * n - (long) i * (i + 1) / 2 + (j - i - 1));
+    }
+
+    private static double cosineDistance(double[] unitA, double[] unitB) {
+        double dot = 0.0;
+        for (int i = 0; i < unitA.length; i++) {
+            dot += unitA[i] * unitB[i];
+        }
+        return 1.0 - dot;
+    }
+
     public static List<List<String>> pairwiseClusteringWithCosineSimilarity(List<String> ids, double[][] embeddings,
             double threshold) {
         return pairwiseClusteringWithCosineSimilarity(ids, embeddings, threshold, 0);
@@ -67,17 +326,55 @@ public class ClusteringService {
             throw new IllegalArgumentException("Number of IDs must match number of embeddings");
         }
 
-        int n = ids.size();
+        List<List<String>> clusters = new ArrayList<>();
+        for (List<Integer> component : pairwiseClusteringIndices(embeddings, threshold, minClusterSize)) {
+            clusters.add(component.stream().map(ids::get).toList());
+        }
+        return clusters;
+    }
+
+    /**
+     * Connected components of the graph linking embeddings whose cosine similarity exceeds the
+     * threshold, as row indices. Each component starts with its lowest index, so callers can map
+     * clusters back to their items by position instead of looking up IDs.
+     *
+     * @param embeddings 2D array of embedding vectors
+     * @param threshold cosine similarity threshold
+     * @param minClusterSize only components with more than this many items are returned
+     * @return list of components, each a list of row indices
+     */
+    public static List<List<Integer>> pairwiseClusteringIndices(double[][] embeddings, double threshold,
+            int minClusterSize) {
+        int n = embeddings.length;
         List<List<Integer>> graph = new ArrayList<>();
         for (int i = 0; i < n; i++) {
             graph.add(new ArrayList<>());
         }
 
+        // Norms are computed once instead of once per pair
+        double[] norms = new double[n];
+        for (int i = 0; i < n; i++) {
+            double sum = 0.0;
+            for (double value : embeddings[i]) {
+                sum += value * value;
+            }
+            norms[i] = Math.sqrt(sum);
+        }
+
         // Build graph: connect nodes if cosine similarity > threshold
         for (int i = 0; i < n; i++) {
+            if (norms[i] == 0.0) {
+                continue;
+            }
             for (int j = i + 1; j < n; j++) {
-                double similarity = calculateCosineSimilarityFromArrays(embeddings[i], embeddings[j]);
-                if (similarity > threshold) {
+                if (norms[j] == 0.0) {
+                    continue;
+                }
+                double dotProduct = 0.0;
+                for (int k = 0; k < embeddings[i].length; k++) {
+                    dotProduct += embeddings[i][k] * embeddings[j][k];
+                }
+                if (dotProduct / (norms[i] * norms[j]) > threshold) {
                     graph.get(i).add(j);
                     graph.get(j).add(i);
                 }
@@ -86,12 +383,12 @@ public class ClusteringService {
 
         // Find connected components using DFS
         boolean[] visited = new boolean[n];
-        List<List<String>> clusters = new ArrayList<>();
+        List<List<Integer>> clusters = new ArrayList<>();
 
         for (int i = 0; i < n; i++) {
             if (!visited[i]) {
-                List<String> component = new ArrayList<>();
-                dfs(i, graph, visited, ids, component);
+                List<Integer> component = new ArrayList<>();
+                dfs(i, graph, visited, component);
                 if (component.size() > minClusterSize) { // Only add clusters with more than minClusterSize items
                     clusters.add(component);
                 }
@@ -101,32 +398,16 @@ public class ClusteringService {
         return clusters;
     }
 
-    private static void dfs(int node, List<List<Integer>> graph, boolean[] visited, List<String> ids,
-            List<String> component) {
+    private static void dfs(int node, List<List<Integer>> graph, boolean[] visited, List<Integer> component) {
         visited[node] = true;
-        component.add(ids.get(node));
+        component.add(node);
         for (int neighbor : graph.get(node)) {
             if (!visited[neighbor]) {
-                dfs(neighbor, graph, visited, ids, component);
+                dfs(neighbor, graph, visited, component);
             }
         }
     }
 
-    private static double calculateCosineSimilarityFromArrays(double[] a, double[] b) {
-        double dotProduct = 0.0;
-        double normA = 0.0;
-        double normB = 0.0;
-        for (int i = 0; i < a.length; i++) {
-            dotProduct += a[i] * b[i];
-            normA += a[i] * a[i];
-            normB += b[i] * b[i];
-        }
-        if (normA == 0.0 || normB == 0.0) {
-            return 0.0;
-        }
-        return dotProduct / (Math.sqrt(normA) * Math.sqrt(normB));
-    }
-
     /**
      * Convenience method for clustering with default cosine similarity parameters.
      * Uses epsilon=0.15 (85% similarity threshold) and minPts=2.
@@ -1,6 +1,14 @@
 package com.matteominin.pdf_extractor.service;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -11,91 +19,109 @@ import com.matteominin.pdf_extractor.model.content.Requirement;
 import com.matteominin.pdf_extractor.model.content.Test;
 import com.matteominin.pdf_extractor.model.content.UseCase;
 
+import jakarta.annotation.PreDestroy;
+
 @Service
 public class ContentReportService {
+	private static final double CONSOLIDATION_THRESHOLD = 0.92;
+
+	private static final Consolidation<UseCase> USE_CASES = new Consolidation<>("UC-",
+			UseCase::setCaseId, UseCase::toString);
+	private static final Consolidation<Requirement> REQUIREMENTS = new Consolidation<>("REQ-",
+			Requirement::setReqId, Requirement::toString);
+	private static final Consolidation<Test> TESTS = new Consolidation<>("TEST-",
+			Test::setTestId, ContentReportService::describeTest);
+
 	@Autowired
 	private EmbeddingService embeddingService;
 
+	// One thread per consolidated type, so the embedding calls of the three types overlap
+	private final AtomicInteger threadCount = new AtomicInteger();
+	private final ExecutorService executor = Executors.newFixedThreadPool(3, runnable -> {
+		Thread thread = new Thread(runnable, "content-consolidation-" + threadCount.incrementAndGet());
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	/**
+	 * How items of one type are consolidated: the prefix of their progressive IDs, how to set
+	 * the ID and the text that is embedded to compare them.
+	 */
+	private static class Consolidation<T> {
+		final String idPrefix;
+		final BiConsumer<T, String> idSetter;
+		final Function<T, String> text;
+
+		Consolidation(String idPrefix, BiConsumer<T, String> idSetter, Function<T, String> text) {
+			this.idPrefix = idPrefix;
+			this.idSetter = idSetter;
+			this.text = text;
+		}
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		executor.shutdownNow();
+	}
+
 	public ContentReport consolidateReport(List<UseCase> useCases, List<Requirement> requirements,
 			List<Architecture> architectures, List<Test> tests) {
 
-		List<UseCase> consolidatedUseCases = consolidate(useCases);
-		List<Requirement> consolidatedRequirements = consolidate(requirements);
-		List<Test> consolidatedTests = tests; // TODO: consolidate(tests) when available
+		CompletableFuture<List<UseCase>> consolidatedUseCases = consolidateAsync(useCases, USE_CASES);
+		CompletableFuture<List<Requirement>> consolidatedRequirements = consolidateAsync(requirements, REQUIREMENTS);
+		CompletableFuture<List<Test>> consolidatedTests = consolidateAsync(tests, TESTS);
 
-		ContentReport report = ContentReport.builder()
-				.useCases(consolidatedUseCases)
-				.requirements(consolidatedRequirements)
-				.architectures(architectures)
-				.tests(consolidatedTests)
-				.build();
+		try {
+			return ContentReport.builder()
+					.useCases(consolidatedUseCases.join())
+					.requirements(consolidatedRequirements.join())
+					.architectures(architectures)
+					.tests(consolidatedTests.join())
+					.build();
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof RuntimeException cause) {
+				throw cause;
+			}
+			throw e;
+		}
+	}
 
-		return report;
+	private <T> CompletableFuture<List<T>> consolidateAsync(List<T> items, Consolidation<T> consolidation) {
+		return CompletableFuture.supplyAsync(() -> consolidate(items, consolidation), executor);
 	}
 
-	private <T> List<T> consolidate(List<T> items) {
-		// Set progressive IDs
-		for (int i = 0; i < items.size(); i++) {
-			Object item = items.get(i);
-			if (item instanceof Requirement) {
-				((Requirement) item).setReqId("REQ-" + (i + 1));
-			} else if (item instanceof UseCase) {
-				((UseCase) item).setCaseId("UC-" + (i + 1));
-			} else if (item instanceof Test) {
-				((Test) item).setTestId("TEST-" + (i + 1));
-			}
+	/**
+	 * Keeps one representative per group of similar items and renumbers the result.
+	 * Clusters are computed on row indices, so each representative is a direct array lookup.
+	 */
+	private <T> List<T> consolidate(List<T> items, Consolidation<T> consolidation) {
+		if (items == null || items.isEmpty()) {
+			return new ArrayList<>();
 		}
 
-		List<String> descriptions = items.stream()
-				.map(item -> item.toString())
-				.toList();
+		List<String> descriptions = new ArrayList<>(items.size());
+		for (int i = 0; i < items.size(); i++) {
+			T item = items.get(i);
+			consolidation.idSetter.accept(item, consolidation.idPrefix + (i + 1));
+			descriptions.add(consolidation.text.apply(item));
+		}
 
 		List<List<Double>> embeddings = embeddingService.generateEmbedding(descriptions);
+		List<List<Integer>> clusters = ClusteringService.pairwiseClusteringIndices(
+				embeddingService.convertToDoubleMatrix(embeddings), CONSOLIDATION_THRESHOLD, 0);
 
-		List<String> ids = items.stream()
-				.map(item -> {
-					if (item instanceof Requirement) {
-						return ((Requirement) item).getReqId();
-					} else if (item instanceof UseCase) {
-						return ((UseCase) item).getCaseId();
-					} else if (item instanceof Test) {
-						return ((Test) item).getTestId();
-					} else {
-						return null;
-					}
-				})
-				.toList();
-
-		List<List<String>> clusteredIds = ClusteringService.pairwiseClusteringWithCosineSimilarity(ids,
-				embeddingService.convertToDoubleMatrix(embeddings), 0.92);
-
-		List<T> consolidatedItems = clusteredIds.stream()
-				.map(cluster -> items.stream()
-						.filter(item -> {
-							if (item instanceof Requirement) {
-								return ((Requirement) item).getReqId().equals(cluster.get(0));
-							} else if (item instanceof UseCase) {
-								return ((UseCase) item).getCaseId().equals(cluster.get(0));
-							} else if (item instanceof Test) {
-								return ((Test) item).getTestId().equals(cluster.get(0));
-							} else {
-								return false;
-							}
-						})
-						.findFirst()
-						.orElse(null))
-				.toList();
-
-		for (int i = 0; i < consolidatedItems.size(); i++) {
-			Object item = consolidatedItems.get(i);
-			if (item instanceof Requirement) {
-				((Requirement) item).setReqId("REQ-" + (i + 1));
-			} else if (item instanceof UseCase) {
-				((UseCase) item).setCaseId("UC-" + (i + 1));
-			} else if (item instanceof Test) {
-				((Test) item).setTestId("TEST-" + (i + 1));
-			}
+		List<T> consolidatedItems = new ArrayList<>(clusters.size());
+		for (List<Integer> cluster : clusters) {
+			T representative = items.get(cluster.get(0));
+			consolidation.idSetter.accept(representative, consolidation.idPrefix + (consolidatedItems.size() + 1));
+			consolidatedItems.add(representative);
 		}
 		return consolidatedItems;
 	}
+
+	private static String describeTest(Test test) {
+		return "Type: " + test.getTestType()
+				+ "\nArtifact: " + test.getTestedArtifactName()
+				+ "\nDescription: " + test.getDescriptionSummary();
+	}
 }
@@ -0,0 +1,82 @@
+package com.matteominin.pdf_extractor.service;
+
+import com.matteominin.pdf_extractor.repository.CoverageReportRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Retention of coverage reports. Reports older than {@code archive-after-days} are moved out of
+ * the hot collection by a scheduled job, leaving summaries behind for the statistics; reports
+ * from feature validation can instead be made transient, expiring {@code transient-ttl-hours}
+ * after they are created. Both are off when set to 0.
+ */
+@Service
+public class CoverageReportArchiver {
+
+    private static final Logger logger = LoggerFactory.getLogger(CoverageReportArchiver.class);
+
+    @Autowired
+    private CoverageReportRepository coverageReportRepository;
+
+    @Value("${app.coverage.retention.archive-after-days:0}")
+    private int archiveAfterDays;
+
+    @Value("${app.coverage.retention.batch-size:200}")
+    private int batchSize;
+
+    @Value("${app.coverage.retention.transient-ttl-hours:0}")
+    private int transientTtlHours;
+
+    private final AtomicBoolean archiving = new AtomicBoolean();
+
+    /**
+     * @return expiry time for a transient report created now, or null if transient reports are
+     * kept like the others
+     */
+    public Date transientExpiry() {
+        if (transientTtlHours <= 0) {
+            return null;
+        }
+        return new Date(System.currentTimeMillis() + TimeUnit.HOURS.toMillis(transientTtlHours));
+    }
+
+    @Scheduled(cron = "${app.coverage.retention.archive-cron:0 30 3 * * *}")
+    public void scheduledArchive() {
+        if (archiveAfterDays > 0) {
+            archive();
+        }
+    }
+
+    /**
+     * Archives the reports older than the retention period.
+     *
+     * @return number of reports archived
+     */
+    public int archive() {
+        if (archiveAfterDays <= 0) {
+            throw new IllegalArgumentException("Archival is disabled (app.coverage.retention.archive-after-days is 0)");
+        }
+        if (!archiving.compareAndSet(false, true)) {
+            logger.info("Coverage report archival already running, skipping");
+            return 0;
+        }
+        try {
+            Date cutoff = new Date(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(archiveAfterDays));
+            long start = System.currentTimeMillis();
+            int archived = coverageReportRepository.archiveOlderThan(cutoff, Math.max(1, batchSize));
+            logger.info("Archived {} coverage reports older than {} days in {} ms", archived, archiveAfterDays,
+                System.currentTimeMillis() - start);
+            return archived;
+        } finally {
+            archiving.set(false);
+        }
+    }
+}
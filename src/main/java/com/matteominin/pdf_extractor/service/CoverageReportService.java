@@ -2,8 +2,11 @@ package com.matteominin.pdf_extractor.service;
 
 import com.matteominin.pdf_extractor.model.coverage.Coverage;
 import com.matteominin.pdf_extractor.model.coverage.CoverageReport;
+import com.matteominin.pdf_extractor.model.coverage.CoverageStats;
 import com.matteominin.pdf_extractor.model.coverage.CoveredFeature;
+import com.matteominin.pdf_extractor.model.coverage.StatsInterval;
 import com.matteominin.pdf_extractor.model.coverage.UncoveredFeature;
+import com.matteominin.pdf_extractor.model.coverage.UncoveredFeatureStats;
 import com.matteominin.pdf_extractor.model.feature.MatchedFeature;
 import com.matteominin.pdf_extractor.model.feature.SummaryFeature;
 import com.matteominin.pdf_extractor.model.pdf.Feature;
@@ -13,7 +16,13 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 
 @Service
 public class CoverageReportService {
@@ -22,6 +31,9 @@ public class CoverageReportService {
     
     @Autowired
     private CoverageReportRepository coverageReportRepository;
+
+    @Autowired
+    private CoverageReportWriter coverageReportWriter;
     
     /**
      * Save a coverage report to the database
@@ -45,6 +57,22 @@ public class CoverageReportService {
         }
     }
 
+    /**
+     * Queue a coverage report for asynchronous insertion. The returned report already has
+     * the ID it will be stored with, and can be fetched by it once the queue is flushed.
+     */
+    public CoverageReport queueCoverageReport(CoverageReport coverageReport) {
+        validateCoverageReport(coverageReport);
+
+        String reportId = coverageReportWriter.submit(coverageReport);
+        logger.debug("Coverage report queued with ID: {}", reportId);
+        return coverageReport;
+    }
+
+    public Map<String, Object> getWriteQueueStats() {
+        return coverageReportWriter.getStats();
+    }
+
     /**
      * Create a coverage report from validation results
      */
@@ -70,6 +98,14 @@ public class CoverageReportService {
      * Get coverage report by ID
      */
     public CoverageReport getCoverageReportById(String id) {
+        return getCoverageReportById(id, false);
+    }
+
+    /**
+     * Get coverage report by ID, optionally loading the section text of the matched features
+     * from the evidence store (otherwise only its reference is returned)
+     */
+    public CoverageReport getCoverageReportById(String id, boolean includeText) {
         try {
             if (id == null || id.trim().isEmpty()) {
                 throw new IllegalArgumentException("Coverage report ID cannot be null or empty");
@@ -79,6 +115,9 @@ public class CoverageReportService {
             if (report == null) {
                 throw new RuntimeException("Coverage report not found with ID: " + id);
             }
+            if (includeText) {
+                coverageReportRepository.loadSectionTexts(report);
+            }
             
             return report;
         } catch (IllegalArgumentException e) {
@@ -90,6 +129,81 @@ public class CoverageReportService {
         }
     }
     
+    /**
+     * Coverage statistics per report name and time bucket, each bucket with the change of its
+     * average coverage since the previous bucket of the same report name
+     */
+    public List<CoverageStats> getCoverageStats(String reportName, Date from, Date to, String interval) {
+        validateRange(from, to);
+        List<CoverageStats> stats = coverageReportRepository.aggregateCoverageStats(
+            reportName, from, to, StatsInterval.of(interval));
+
+        // Results are ordered by report name, then bucket
+        CoverageStats previous = null;
+        for (CoverageStats bucket : stats) {
+            if (previous != null && Objects.equals(previous.getReportName(), bucket.getReportName())) {
+                bucket.setChange(Math.round((bucket.getAverageCoverage() - previous.getAverageCoverage()) * 100.0) / 100.0);
+            }
+            previous = bucket;
+        }
+        return stats;
+    }
+
+    /**
+     * Trend of the average coverage of each report name: least-squares slope over its buckets,
+     * in percentage points per interval. Buckets are placed on the interval's time grid, so that
+     * periods without reports count. Report names with a single bucket have no trend.
+     */
+    public Map<String, Double> getCoverageTrend(List<CoverageStats> stats, String interval) {
+        StatsInterval statsInterval = StatsInterval.of(interval);
+        Map<String, List<CoverageStats>> bucketsByName = new LinkedHashMap<>();
+        for (CoverageStats bucket : stats) {
+            bucketsByName.computeIfAbsent(String.valueOf(bucket.getReportName()), name -> new ArrayList<>())
+                .add(bucket);
+        }
+
+        Map<String, Double> trend = new LinkedHashMap<>();
+        bucketsByName.forEach((name, buckets) -> {
+            int n = buckets.size();
+            if (n < 2) {
+                return;
+            }
+            // Relative to the first bucket, to keep the sums small
+            long origin = statsInterval.indexOf(buckets.get(0).getBucket());
+            double[] x = new double[n];
+            for (int i = 0; i < n; i++) {
+                x[i] = statsInterval.indexOf(buckets.get(i).getBucket()) - origin;
+            }
+            double meanX = Arrays.stream(x).average().orElse(0.0);
+            double meanY = buckets.stream().mapToDouble(CoverageStats::getAverageCoverage).average().orElse(0.0);
+            double covariance = 0.0;
+            double variance = 0.0;
+            for (int i = 0; i < n; i++) {
+                covariance += (x[i] - meanX) * (buckets.get(i).getAverageCoverage() - meanY);
+                variance += (x[i] - meanX) * (x[i] - meanX);
+            }
+            trend.put(name, Math.round(covariance / variance * 100.0) / 100.0);
+        });
+        return trend;
+    }
+
+    /**
+     * Reference features most often left uncovered in the given range
+     */
+    public List<UncoveredFeatureStats> getTopUncoveredFeatures(String reportName, Date from, Date to, int limit) {
+        validateRange(from, to);
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Limit must be positive");
+        }
+        return coverageReportRepository.findTopUncoveredFeatures(reportName, from, to, limit);
+    }
+
+    private void validateRange(Date from, Date to) {
+        if (from != null && to != null && !from.before(to)) {
+            throw new IllegalArgumentException("'from' must be before 'to'");
+        }
+    }
+
     /**
      * Convert the current analyzeCoverage result format to the new Coverage model
      */
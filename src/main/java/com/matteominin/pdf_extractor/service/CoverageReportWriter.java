@@ -0,0 +1,217 @@
+package com.matteominin.pdf_extractor.service;
+
+import com.matteominin.pdf_extractor.model.coverage.CoverageReport;
+import com.matteominin.pdf_extractor.repository.CoverageReportRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Write-behind persistence for coverage reports. Reports get their ID when queued and are
+ * inserted by a background thread in batches, when {@code batch-size} reports are waiting or
+ * {@code flush-interval-ms} has passed since the first one was queued. When the queue is full,
+ * callers wait up to {@code offer-timeout-ms} and then write their report themselves, which
+ * slows producers down to the speed of the database. A batch that fails is retried one report at
+ * a time, and pending reports are flushed on shutdown.
+ */
+@Service
+public class CoverageReportWriter {
+
+    private static final Logger logger = LoggerFactory.getLogger(CoverageReportWriter.class);
+
+    @Autowired
+    private CoverageReportRepository coverageReportRepository;
+
+    @Value("${app.coverage.write-behind.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.coverage.write-behind.capacity:1000}")
+    private int capacity;
+
+    @Value("${app.coverage.write-behind.batch-size:50}")
+    private int batchSize;
+
+    @Value("${app.coverage.write-behind.flush-interval-ms:1000}")
+    private long flushIntervalMs;
+
+    @Value("${app.coverage.write-behind.offer-timeout-ms:500}")
+    private long offerTimeoutMs;
+
+    private BlockingQueue<CoverageReport> queue;
+    private Thread flusher;
+    private volatile boolean running;
+    // Held for reading while a report is queued and for writing while stopping, so that nothing is
+    // queued after the final drain
+    private final ReadWriteLock stateLock = new ReentrantReadWriteLock();
+
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong writtenByCaller = new AtomicLong();
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            logger.info("Coverage report write-behind disabled, reports are written synchronously");
+            return;
+        }
+        queue = new ArrayBlockingQueue<>(Math.max(1, capacity));
+        running = true;
+        flusher = new Thread(this::flushLoop, "coverage-report-writer");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    /**
+     * Queues a report for insertion.
+     *
+     * @return the ID the report will be stored with
+     */
+    public String submit(CoverageReport report) {
+        report.setId(new ObjectId().toString());
+        report.setCreatedAt(new Date());
+
+        boolean queued = false;
+        stateLock.readLock().lock();
+        try {
+            if (running) {
+                queued = queue.offer(report, offerTimeoutMs, TimeUnit.MILLISECONDS);
+                if (!queued) {
+                    logger.warn("Coverage report queue full ({} pending), writing report {} synchronously",
+                        queue.size(), report.getId());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            stateLock.readLock().unlock();
+        }
+        if (!queued) {
+            writeSynchronously(report);
+        }
+        return report.getId();
+    }
+
+    private void writeSynchronously(CoverageReport report) {
+        coverageReportRepository.save(report);
+        writtenByCaller.incrementAndGet();
+    }
+
+    private void flushLoop() {
+        List<CoverageReport> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                CoverageReport first = queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+
+                // Collect until the batch is full or the flush interval has elapsed
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+                while (batch.size() < batchSize) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= batchSize || remaining <= 0) {
+                        break;
+                    }
+                    CoverageReport next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                flush(batch);
+            } catch (InterruptedException e) {
+                break;
+            }
+        }
+        flush(batch);
+    }
+
+    private void flush(List<CoverageReport> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        int stored;
+        try {
+            stored = coverageReportRepository.saveAll(batch);
+        } catch (Exception e) {
+            logger.warn("Failed to write {} queued coverage reports: {}", batch.size(), e.getMessage());
+            stored = -1;
+        }
+        if (stored == batch.size()) {
+            written.addAndGet(stored);
+        } else {
+            // Reports of the batch that did get stored are counted as stored again
+            logger.warn("Retrying {} queued coverage reports one at a time", batch.size());
+            for (CoverageReport report : batch) {
+                try {
+                    if (coverageReportRepository.saveAll(List.of(report)) == 1) {
+                        written.incrementAndGet();
+                        continue;
+                    }
+                } catch (Exception e) {
+                    logger.error("Failed to write coverage report {}: {}", report.getId(), e.getMessage());
+                }
+                failed.incrementAndGet();
+            }
+        }
+        batch.clear();
+    }
+
+    @PreDestroy
+    public void drain() {
+        stateLock.writeLock().lock();
+        try {
+            if (!running) {
+                return;
+            }
+            // Not interrupted, so that a batch being written is not aborted; the loop
+            // notices within one flush interval
+            running = false;
+        } finally {
+            stateLock.writeLock().unlock();
+        }
+        try {
+            flusher.join(flushIntervalMs + TimeUnit.SECONDS.toMillis(30));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        List<CoverageReport> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        for (int start = 0; start < remaining.size(); start += batchSize) {
+            flush(new ArrayList<>(remaining.subList(start, Math.min(start + batchSize, remaining.size()))));
+        }
+        logger.info("Coverage report writer stopped: {} written, {} written by callers, {} failed",
+            written.get(), writtenByCaller.get(), failed.get());
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("pending", queue != null ? queue.size() : 0);
+        stats.put("capacity", capacity);
+        stats.put("written", written.get());
+        stats.put("writtenByCaller", writtenByCaller.get());
+        stats.put("failed", failed.get());
+        return stats;
+    }
+}
@@ -1,46 +1,217 @@
 package com.matteominin.pdf_extractor.service;
 
+import com.matteominin.pdf_extractor.config.ChangeStreamListener;
+import com.matteominin.pdf_extractor.config.ChangeStreamWatcher;
+import com.matteominin.pdf_extractor.model.clustering.ClusteringSnapshot;
 import com.matteominin.pdf_extractor.model.pdf.Feature;
+import com.matteominin.pdf_extractor.repository.ClusteringSnapshotRepository;
 import com.matteominin.pdf_extractor.repository.FeatureRepository;
+import com.matteominin.pdf_extractor.util.Dendrogram;
+import com.matteominin.pdf_extractor.util.DocumentDictionary;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import jakarta.annotation.PostConstruct;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
+import java.util.stream.Stream;
 
 @Service
 public class FeatureClusteringService {
 
+    private static final Logger logger = LoggerFactory.getLogger(FeatureClusteringService.class);
+
+    public static final String GREEDY_ALGORITHM = "greedy";
+    public static final String STREAMING_ALGORITHM = "streaming";
+    public static final String SINGLE_LINKAGE_ALGORITHM = "single-linkage";
+    public static final String AVERAGE_LINKAGE_ALGORITHM = "average-linkage";
+
     @Autowired
     private FeatureRepository featureRepository;
 
+    @Autowired
+    private ClusteringSnapshotRepository snapshotRepository;
+
+    @Autowired
+    private ChangeStreamWatcher changeStreamWatcher;
+
+    @Value("${app.mongodb.collection:features}")
+    private String featuresCollection;
+
+    @Value("${app.clustering.streaming.batch-size:500}")
+    private int streamingBatchSize;
+
+    @Value("${app.clustering.streaming.max-clusters:1000}")
+    private int streamingMaxClusters;
+
+    // A cluster is kept if its features come from at least max(count, ceil(fraction * documents)) documents
+    @Value("${app.clustering.min-support-count:1}")
+    private int minSupportCount;
+
+    @Value("${app.clustering.min-support-fraction:0.67}")
+    private double minSupportFraction;
+
+    // Hierarchies by linkage, each valid for the corpus version it was built on
+    private final Map<String, CachedHierarchy> hierarchies = new HashMap<>();
+
+    // Corpus version computed once and dropped on every feature change, while the change stream
+    // is active; otherwise it is recomputed on each request
+    private final Object corpusVersionLock = new Object();
+    private String cachedCorpusVersion;
+    private long corpusGeneration;
+
+    private static class CachedHierarchy {
+        final String corpusVersion;
+        final List<Feature> features;
+        final int[] documentIds;
+        final int documentCount;
+        final Dendrogram dendrogram;
+
+        CachedHierarchy(String corpusVersion, List<Feature> features, int[] documentIds, int documentCount,
+                        Dendrogram dendrogram) {
+            this.corpusVersion = corpusVersion;
+            this.features = features;
+            this.documentIds = documentIds;
+            this.documentCount = documentCount;
+            this.dendrogram = dendrogram;
+        }
+    }
+
+    @PostConstruct
+    public void registerCorpusListener() {
+        changeStreamWatcher.register(featuresCollection, new ChangeStreamListener() {
+            @Override
+            public void onChange(ChangeStreamDocument<Document> event) {
+                invalidateCorpusVersion();
+            }
+
+            @Override
+            public void onReset() {
+                invalidateCorpusVersion();
+            }
+        });
+    }
+
+    private void invalidateCorpusVersion() {
+        synchronized (corpusVersionLock) {
+            corpusGeneration++;
+            cachedCorpusVersion = null;
+        }
+    }
+
+    private String getCorpusVersion() {
+        if (!changeStreamWatcher.isActive(featuresCollection)) {
+            return featureRepository.getCorpusVersion();
+        }
+        long generation;
+        synchronized (corpusVersionLock) {
+            if (cachedCorpusVersion != null) {
+                return cachedCorpusVersion;
+            }
+            generation = corpusGeneration;
+        }
+
+        String corpusVersion = featureRepository.getCorpusVersion();
+        synchronized (corpusVersionLock) {
+            if (corpusGeneration == generation) {
+                cachedCorpusVersion = corpusVersion;
+            }
+        }
+        return corpusVersion;
+    }
+
     /**
      * Clusters features based on cosine similarity with the given threshold.
-     * Each feature belongs to at most one cluster.
+     * Each feature belongs to at most one cluster. If a snapshot computed with the
+     * same parameters on the current corpus version exists, it is returned instead
+     * of re-running the clustering.
      * 
      * @param threshold cosine similarity threshold (0.0 to 1.0)
      * @return Map where key is cluster ID and value is list of features in that cluster
      */
     public List<List<Feature>> clusterFeatures(double threshold) {
+        return clusterFeatures(threshold, GREEDY_ALGORITHM);
+    }
+
+    /**
+     * Clusters features with the given algorithm.
+     * <ul>
+     *   <li>{@code greedy}: loads the whole corpus and compares every feature with every unassigned one.</li>
+     *   <li>{@code streaming}: leader clustering over a cursor in fixed-size batches, see
+     *       {@link #computeStreamingClusters(double, int, int)}.</li>
+     *   <li>{@code single-linkage} / {@code average-linkage}: cuts a hierarchy built once per corpus
+     *       version, so any threshold is served without re-running the clustering.</li>
+     * </ul>
+     *
+     * @param threshold cosine similarity threshold (0.0 to 1.0)
+     * @param algorithm clustering algorithm
+     * @return list of clusters
+     */
+    public List<List<Feature>> clusterFeatures(double threshold, String algorithm) {
+        Map<String, Object> parameters = clusteringParameters(threshold, algorithm);
+        String corpusVersion = getCorpusVersion();
+
+        if (isHierarchical(algorithm)) {
+            // Cutting the cached hierarchy is cheaper than storing and reloading a snapshot
+            return cutHierarchy(algorithm, corpusVersion, threshold);
+        }
+
+        ClusteringSnapshot snapshot = snapshotRepository.findLatest(parametersKey(parameters), corpusVersion);
+        if (snapshot != null) {
+            logger.info("Serving clustering snapshot {} for corpus version {}", snapshot.getId(), corpusVersion);
+            return loadClusters(snapshot);
+        }
+
+        List<List<Feature>> clusters = computeClusters(parameters);
+        saveSnapshot(parameters, corpusVersion, clusters);
+        return clusters;
+    }
+
+    private List<List<Feature>> computeClusters(Map<String, Object> parameters) {
+        double threshold = (Double) parameters.get("threshold");
+        if (STREAMING_ALGORITHM.equals(parameters.get("algorithm"))) {
+            return computeStreamingClusters(threshold,
+                    (Integer) parameters.get("batchSize"), (Integer) parameters.get("maxClusters"));
+        }
+        return computeGreedyClusters(threshold);
+    }
+
+    private List<List<Feature>> computeGreedyClusters(double threshold) {
         List<Feature> features = featureRepository.findAllWithEmbeddings();
         
         if (features.isEmpty()) {
             return Collections.emptyList();
         }
 
+        DocumentDictionary documents = new DocumentDictionary();
+        int[] documentIds = new int[features.size()];
+        for (int i = 0; i < features.size(); i++) {
+            documentIds[i] = documents.idOf(features.get(i).getFilePath());
+        }
+        int requiredSupport = documents.requiredSupport(minSupportCount, minSupportFraction);
+
         List<List<Feature>> clusters = new ArrayList<>();
         Set<String> assignedFeatures = new HashSet<>();
 
-        for (Feature feature : features) {
+        for (int i = 0; i < features.size(); i++) {
+            Feature feature = features.get(i);
             if (assignedFeatures.contains(feature.getId())) {
                 continue; // Already assigned to a cluster
             }
 
             List<Feature> cluster = new ArrayList<>();
+            BitSet support = new BitSet(documents.size());
             cluster.add(feature);
+            support.set(documentIds[i]);
             assignedFeatures.add(feature.getId());
 
             // Find all similar features for this cluster
-            for (Feature otherFeature : features) {
+            for (int j = 0; j < features.size(); j++) {
+                Feature otherFeature = features.get(j);
                 if (assignedFeatures.contains(otherFeature.getId())) {
                     continue; // Already assigned
                 }
@@ -49,56 +220,352 @@ public class FeatureClusteringService {
                         otherFeature.getEmbedding());
                 if (similarity >= threshold) {
                     cluster.add(otherFeature);
+                    support.set(documentIds[j]);
                     assignedFeatures.add(otherFeature.getId());
                 }
             }
-            Set<String> clusterDocs = new HashSet<>(cluster.stream().map(Feature::getFilePath).toList());
-            if(clusterDocs.size() > 3*2/3)    // TODO: insert the number of documents
+            if (support.cardinality() >= requiredSupport)
                 clusters.add(removeEmbeddings(cluster));
         }
 
         return clusters;
     }
 
+    /**
+     * Leader clustering over the feature cursor. The first pass reads features in batches of
+     * {@code batchSize} and keeps at most {@code maxClusters} running centroids: a feature joins
+     * the most similar centroid if the similarity reaches the threshold, otherwise it opens a new
+     * one while there is room. The second pass re-reads the cursor and assigns every feature to
+     * its most similar final centroid. Only the current batch and the centroids hold embeddings,
+     * and members are tracked by ID, so the passes hold an ID per feature rather than the
+     * features; the clusters that meet the support threshold are then loaded without embeddings,
+     * and those are held in full, as the result must be.
+     */
+    private List<List<Feature>> computeStreamingClusters(double threshold, int batchSize, int maxClusters) {
+        List<double[]> centroidSums = new ArrayList<>();
+        List<double[]> centroids = new ArrayList<>();
+        DocumentDictionary documents = new DocumentDictionary();
+
+        featureRepository.forEachBatchWithEmbeddings(batchSize, batch -> {
+            for (Feature feature : batch) {
+                double[] vector = unitVector(feature.getEmbedding());
+                if (vector == null) {
+                    continue;
+                }
+                documents.idOf(feature.getFilePath());
+
+                int best = nearestCentroid(centroids, vector, threshold);
+                if (best >= 0) {
+                    double[] sum = centroidSums.get(best);
+                    for (int j = 0; j < sum.length; j++) {
+                        sum[j] += vector[j];
+                    }
+                    centroids.set(best, unitVector(sum));
+                } else if (centroids.size() < maxClusters) {
+                    centroidSums.add(vector.clone());
+                    centroids.add(vector);
+                }
+            }
+        });
+        logger.info("Streaming clustering found {} centroids", centroids.size());
+
+        List<List<String>> members = new ArrayList<>();
+        List<BitSet> supports = new ArrayList<>();
+        for (int k = 0; k < centroids.size(); k++) {
+            members.add(new ArrayList<>());
+            supports.add(new BitSet(documents.size()));
+        }
+
+        featureRepository.forEachBatchWithEmbeddings(batchSize, batch -> {
+            for (Feature feature : batch) {
+                double[] vector = unitVector(feature.getEmbedding());
+                if (vector == null) {
+                    continue;
+                }
+
+                int best = nearestCentroid(centroids, vector, threshold);
+                if (best >= 0) {
+                    members.get(best).add(feature.getId());
+                    supports.get(best).set(documents.idOf(feature.getFilePath()));
+                }
+            }
+        });
+
+        int requiredSupport = documents.requiredSupport(minSupportCount, minSupportFraction);
+        List<List<String>> clusters = new ArrayList<>();
+        for (int k = 0; k < members.size(); k++) {
+            if (!members.get(k).isEmpty() && supports.get(k).cardinality() >= requiredSupport) {
+                clusters.add(members.get(k));
+            }
+        }
+        return loadClusters(clusters);
+    }
+
+    private boolean isHierarchical(String algorithm) {
+        return SINGLE_LINKAGE_ALGORITHM.equals(algorithm) || AVERAGE_LINKAGE_ALGORITHM.equals(algorithm);
+    }
+
+    /**
+     * Clusters from the hierarchy of the given linkage, cut at cosine distance 1 - threshold.
+     * With single linkage this matches the connected components of the similarity graph at the
+     * threshold; with average linkage every merge has mean pairwise similarity of at least it.
+     */
+    private List<List<Feature>> cutHierarchy(String algorithm, String corpusVersion, double threshold) {
+        CachedHierarchy hierarchy = getHierarchy(algorithm, corpusVersion);
+        int[] labels = hierarchy.dendrogram.cut(1.0 - threshold);
+
+        List<List<Feature>> members = new ArrayList<>();
+        List<BitSet> supports = new ArrayList<>();
+        for (int i = 0; i < labels.length; i++) {
+            while (members.size() <= labels[i]) {
+                members.add(new ArrayList<>());
+                supports.add(new BitSet(hierarchy.documentCount));
+            }
+            members.get(labels[i]).add(hierarchy.features.get(i));
+            supports.get(labels[i]).set(hierarchy.documentIds[i]);
+        }
+
+        int requiredSupport = DocumentDictionary.requiredSupport(minSupportCount, minSupportFraction,
+                hierarchy.documentCount);
+        List<List<Feature>> clusters = new ArrayList<>();
+        for (int k = 0; k < members.size(); k++) {
+            if (supports.get(k).cardinality() >= requiredSupport) {
+                clusters.add(members.get(k));
+            }
+        }
+        return clusters;
+    }
+
+    /**
+     * Returns the hierarchy for the linkage, building it only if the corpus changed since the
+     * cached one was built. Features are streamed from the cursor and only the dendrogram and
+     * features without embeddings are kept.
+     */
+    private synchronized CachedHierarchy getHierarchy(String algorithm, String corpusVersion) {
+        CachedHierarchy cached = hierarchies.get(algorithm);
+        if (cached != null && cached.corpusVersion.equals(corpusVersion)) {
+            return cached;
+        }
+
+        // Read from the cursor keeping only primitive vectors, not the boxed embedding lists
+        List<Feature> features = new ArrayList<>();
+        List<double[]> vectors = new ArrayList<>();
+        try (Stream<Feature> stream = featureRepository.streamAllWithEmbeddings(streamingBatchSize,
+                FeatureRepository.FEATURE_FIELDS)) {
+            stream.forEach(feature -> {
+                vectors.add(ClusteringService.convertToDoubleArray(feature.getEmbedding()));
+                features.add(withoutEmbedding(feature));
+            });
+        }
+
+        double[][] embeddings = vectors.toArray(new double[0][]);
+        DocumentDictionary documents = new DocumentDictionary();
+        int[] documentIds = new int[features.size()];
+        for (int i = 0; i < features.size(); i++) {
+            documentIds[i] = documents.idOf(features.get(i).getFilePath());
+        }
+
+        long start = System.currentTimeMillis();
+        Dendrogram dendrogram = SINGLE_LINKAGE_ALGORITHM.equals(algorithm)
+                ? ClusteringService.singleLinkageDendrogram(embeddings)
+                : ClusteringService.averageLinkageDendrogram(embeddings);
+        logger.info("Built {} hierarchy over {} features in {} ms", algorithm, features.size(),
+                System.currentTimeMillis() - start);
+
+        cached = new CachedHierarchy(corpusVersion, features, documentIds, documents.size(),
+                dendrogram);
+        hierarchies.put(algorithm, cached);
+        return cached;
+    }
+
+    /**
+     * Index of the centroid most similar to the vector, or -1 if none reaches the threshold.
+     */
+    private int nearestCentroid(List<double[]> centroids, double[] vector, double threshold) {
+        int best = -1;
+        double bestSimilarity = threshold;
+        for (int k = 0; k < centroids.size(); k++) {
+            double[] centroid = centroids.get(k);
+            double similarity = 0.0;
+            for (int j = 0; j < vector.length; j++) {
+                similarity += centroid[j] * vector[j];
+            }
+            if (similarity >= bestSimilarity) {
+                bestSimilarity = similarity;
+                best = k;
+            }
+        }
+        return best;
+    }
+
+    private double[] unitVector(List<Double> embedding) {
+        if (embedding == null || embedding.isEmpty()) {
+            return null;
+        }
+        return unitVector(ClusteringService.convertToDoubleArray(embedding));
+    }
+
+    private double[] unitVector(double[] vector) {
+        double norm = 0.0;
+        for (double value : vector) {
+            norm += value * value;
+        }
+        if (norm == 0.0) {
+            return null;
+        }
+        norm = Math.sqrt(norm);
+        double[] unit = new double[vector.length];
+        for (int j = 0; j < vector.length; j++) {
+            unit[j] = vector[j] / norm;
+        }
+        return unit;
+    }
+
     /**
      * Returns a list of features with embedding set to null (for response serialization).
      */
     private List<Feature> removeEmbeddings(List<Feature> features) {
         List<Feature> result = new ArrayList<>();
         for (Feature f : features) {
-            Feature copy = Feature.builder()
-                .id(f.getId())
-                .feature(f.getFeature())
-                .description(f.getDescription())
-                .category(f.getCategory())
-                .evidence(f.getEvidence())
-                .confidence(f.getConfidence())
-                .source_title(f.getSource_title())
-                .embedding(null)
-                .filePath(f.getFilePath())
-                .createdAt(f.getCreatedAt())
-                .updatedAt(f.getUpdatedAt())
-                .build();
-            result.add(copy);
+            result.add(withoutEmbedding(f));
         }
         return result;
     }
 
+    private Feature withoutEmbedding(Feature f) {
+        return Feature.builder()
+            .id(f.getId())
+            .feature(f.getFeature())
+            .description(f.getDescription())
+            .category(f.getCategory())
+            .evidence(f.getEvidence())
+            .confidence(f.getConfidence())
+            .source_title(f.getSource_title())
+            .embedding(null)
+            .filePath(f.getFilePath())
+            .createdAt(f.getCreatedAt())
+            .updatedAt(f.getUpdatedAt())
+            .build();
+    }
+
     /**
-     * Gets clustering statistics.
+     * Gets clustering statistics. Statistics are read from the stored snapshot; the
+     * clustering only runs if no snapshot exists for the current corpus version.
      * 
      * @param threshold cosine similarity threshold
      * @return statistics about the clustering result
      */
     public ClusteringStats getClusteringStats(double threshold) {
-        List<List<Feature>> clusters = clusterFeatures(threshold);
-        
+        return getClusteringStats(threshold, GREEDY_ALGORITHM);
+    }
+
+    public ClusteringStats getClusteringStats(double threshold, String algorithm) {
+        Map<String, Object> parameters = clusteringParameters(threshold, algorithm);
+        String corpusVersion = getCorpusVersion();
+
+        if (isHierarchical(algorithm)) {
+            List<List<Feature>> clusters = cutHierarchy(algorithm, corpusVersion, threshold);
+            int totalFeatures = clusters.stream().mapToInt(List::size).sum();
+            int totalClusters = clusters.size();
+            return new ClusteringStats(totalFeatures, totalClusters,
+                    clusters.stream().mapToInt(List::size).max().orElse(0),
+                    totalClusters > 0 ? (double) totalFeatures / totalClusters : 0.0, threshold);
+        }
+
+        ClusteringSnapshot snapshot = snapshotRepository.findLatest(parametersKey(parameters), corpusVersion);
+        if (snapshot == null) {
+            snapshot = saveSnapshot(parameters, corpusVersion, computeClusters(parameters));
+        }
+
+        return new ClusteringStats(snapshot.getTotalFeatures(), snapshot.getTotalClusters(),
+                snapshot.getLargestClusterSize(), snapshot.getAverageClusterSize(), threshold);
+    }
+
+    private Map<String, Object> clusteringParameters(double threshold, String algorithm) {
+        Map<String, Object> parameters = new LinkedHashMap<>();
+        parameters.put("algorithm", algorithm);
+        parameters.put("threshold", threshold);
+        parameters.put("minSupportCount", minSupportCount);
+        parameters.put("minSupportFraction", minSupportFraction);
+
+        if (STREAMING_ALGORITHM.equals(algorithm)) {
+            if (streamingBatchSize < 1 || streamingMaxClusters < 1) {
+                throw new IllegalArgumentException("Streaming clustering needs app.clustering.streaming.batch-size and "
+                    + "max-clusters of at least 1 (batch-size: " + streamingBatchSize
+                    + ", max-clusters: " + streamingMaxClusters + ")");
+            }
+            parameters.put("batchSize", streamingBatchSize);
+            parameters.put("maxClusters", streamingMaxClusters);
+        } else if (!GREEDY_ALGORITHM.equals(algorithm) && !isHierarchical(algorithm)) {
+            throw new IllegalArgumentException("Unknown clustering algorithm: " + algorithm);
+        }
+        return parameters;
+    }
+
+    /**
+     * Canonical, order-independent key for a parameter set.
+     */
+    private String parametersKey(Map<String, Object> parameters) {
+        return new TreeMap<>(parameters).toString();
+    }
+
+    private ClusteringSnapshot saveSnapshot(Map<String, Object> parameters, String corpusVersion,
+                                            List<List<Feature>> clusters) {
         int totalFeatures = clusters.stream().mapToInt(List::size).sum();
         int totalClusters = clusters.size();
-        int largestClusterSize = clusters.stream().mapToInt(List::size).max().orElse(0);
-        double averageClusterSize = totalClusters > 0 ? (double) totalFeatures / totalClusters : 0.0;
 
-        return new ClusteringStats(totalFeatures, totalClusters, largestClusterSize, averageClusterSize, threshold);
+        ClusteringSnapshot snapshot = ClusteringSnapshot.builder()
+            .algorithm((String) parameters.get("algorithm"))
+            .parametersKey(parametersKey(parameters))
+            .parameters(parameters)
+            .corpusVersion(corpusVersion)
+            .clusters(clusters.stream()
+                .map(cluster -> cluster.stream().map(Feature::getId).toList())
+                .toList())
+            .totalFeatures(totalFeatures)
+            .totalClusters(totalClusters)
+            .largestClusterSize(clusters.stream().mapToInt(List::size).max().orElse(0))
+            .averageClusterSize(totalClusters > 0 ? (double) totalFeatures / totalClusters : 0.0)
+            .build();
+
+        try {
+            snapshotRepository.save(snapshot);
+        } catch (Exception e) {
+            // The result is still valid, it just will not be reused
+            logger.warn("Failed to store clustering snapshot: {}", e.getMessage());
+        }
+        return snapshot;
+    }
+
+    /**
+     * Rebuilds the clusters of a snapshot from the stored feature IDs, preserving cluster order.
+     */
+    private List<List<Feature>> loadClusters(ClusteringSnapshot snapshot) {
+        return loadClusters(snapshot.getClusters());
+    }
+
+    // Features by cluster, without embeddings; features deleted since are left out
+    private List<List<Feature>> loadClusters(List<List<String>> clusterIdLists) {
+        Set<String> ids = new HashSet<>();
+        clusterIdLists.forEach(ids::addAll);
+
+        Map<String, Feature> featuresById = new HashMap<>();
+        for (Feature feature : featureRepository.findByIds(ids)) {
+            featuresById.put(feature.getId(), feature);
+        }
+
+        List<List<Feature>> clusters = new ArrayList<>();
+        for (List<String> clusterIds : clusterIdLists) {
+            List<Feature> cluster = new ArrayList<>();
+            for (String id : clusterIds) {
+                Feature feature = featuresById.get(id);
+                if (feature != null) {
+                    cluster.add(feature);
+                }
+            }
+            clusters.add(cluster);
+        }
+        return clusters;
     }
 
     /**
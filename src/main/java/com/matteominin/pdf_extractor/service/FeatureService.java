@@ -1,15 +1,20 @@
 package com.matteominin.pdf_extractor.service;
 
+import com.matteominin.pdf_extractor.model.ingestion.BulkUpsertResult;
 import com.matteominin.pdf_extractor.model.pdf.Feature;
+import com.matteominin.pdf_extractor.model.pdf.FeatureView;
 import com.matteominin.pdf_extractor.repository.FeatureRepository;
 
+import org.bson.types.ObjectId;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Service
 public class FeatureService {
@@ -41,6 +46,31 @@ public class FeatureService {
     }
     
     public List<Feature> addBatchFeatures(List<List<Feature>> features) {
+        List<Feature> allFeatures = embedBatchFeatures(features);
+
+        // save to db
+        featureRepository.saveFeatureList(allFeatures);
+        
+        logger.info("Batch embedding completed for {} features", features.size());
+        return allFeatures;
+    }
+
+    /**
+     * Embeds and stores a batch of features. Saving is idempotent: features already stored
+     * (same text and source file) are matched instead of duplicated.
+     *
+     * @return IDs and per-chunk inserted/matched/failed counts
+     */
+    public BulkUpsertResult ingestBatchFeatures(List<List<Feature>> features) {
+        List<Feature> allFeatures = embedBatchFeatures(features);
+        BulkUpsertResult result = featureRepository.saveFeatureList(allFeatures);
+
+        logger.info("Batch ingestion completed for {} features: {} inserted, {} matched, {} failed",
+            allFeatures.size(), result.getInserted(), result.getMatched(), result.getFailed());
+        return result;
+    }
+
+    private List<Feature> embedBatchFeatures(List<List<Feature>> features) {
         List<Feature> allFeatures = new ArrayList<>();
 
         for (List<Feature> batch : features) {
@@ -58,16 +88,31 @@ public class FeatureService {
                 feature.setEmbedding(embedding);
             }
         }
-
-        // save to db
-        featureRepository.saveFeatureList(allFeatures);
-        
-        logger.info("Batch embedding completed for {} features", features.size());
         return allFeatures;
     }
 
-    public List<Feature> getAllFeatures() {
-        return featureRepository.findAll();
+    /**
+     * Streams the listing view of all features from a database cursor. The caller must
+     * consume or close the stream.
+     *
+     * @param include heavy fields to include ("embedding", "section_text")
+     * @param after ID of the last feature of the previous page, or null
+     * @param limit page size, or 0 for all remaining features
+     */
+    public Stream<FeatureView> streamFeatureViews(Collection<String> include, String after, int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("limit must not be negative");
+        }
+        if (after != null && !ObjectId.isValid(after)) {
+            throw new IllegalArgumentException("Invalid after cursor: " + after);
+        }
+        for (String field : include) {
+            if (!FeatureRepository.OPTIONAL_VIEW_FIELDS.contains(field)) {
+                throw new IllegalArgumentException("Unknown include field: " + field
+                    + " (allowed: " + FeatureRepository.OPTIONAL_VIEW_FIELDS + ")");
+            }
+        }
+        return featureRepository.streamViews(include, after, limit);
     }
     
     private void validateFeature(Feature feature) {
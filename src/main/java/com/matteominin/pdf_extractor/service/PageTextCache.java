@@ -0,0 +1,349 @@
+package com.matteominin.pdf_extractor.service;
+
+import com.matteominin.pdf_extractor.util.ContentHash;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Disk cache of the text the sidecar extracted from each PDF page, so that later sidecar
+ * requests for the same document, such as sections extracted again, are served locally. Pages
+ * are stored one file each under {@code <dir>/<SHA-256 of the PDF>/<variant>/<page>.txt},
+ * keyed by content rather than path, so a renamed or re-uploaded file still hits. Pages
+ * without images read the same in both image modes and are shared under the {@code text}
+ * variant; pages with images are kept per mode, under {@code placeholder} or {@code vision}.
+ * When the cache grows past {@code max-size-mb}, the least recently used pages are deleted.
+ * <p>
+ * Only sidecar text is cached. With {@code app.pdf.local.enabled} (the default), index pages
+ * are extracted in process by {@link PdfTextExtractor}, whose line breaks differ from the
+ * sidecar's, so the index pass neither reads nor fills this cache; the shared pages only
+ * serve an index pass when it goes through the sidecar.
+ */
+@Component
+public class PageTextCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(PageTextCache.class);
+
+    private static final String SHARED = "text";
+    private static final List<String> VARIANTS = List.of(SHARED, "placeholder", "vision");
+
+    private static final int MAX_FILE_HASHES = 1024;
+
+    @Value("${app.pdf.cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.pdf.cache.dir:data/page-cache}")
+    private String dir;
+
+    @Value("${app.pdf.cache.max-size-mb:512}")
+    private long maxSizeMb;
+
+    private Path root;
+    private long maxBytes;
+
+    // Page file -> size, in access order; guarded by itself
+    private final LinkedHashMap<Path, Long> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private long totalBytes;
+
+    // Path -> hash of the file as last seen, to hash each file once per modification; the least
+    // recently used paths are forgotten
+    private final Map<String, FileHash> fileHashes = Collections.synchronizedMap(
+        new LinkedHashMap<>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, FileHash> eldest) {
+                return size() > MAX_FILE_HASHES;
+            }
+        });
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    private record FileHash(long size, long modified, String hash) {
+    }
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            logger.info("PDF page text cache disabled");
+            return;
+        }
+        root = Paths.get(dir).toAbsolutePath();
+        maxBytes = maxSizeMb * 1024 * 1024;
+        try {
+            Files.createDirectories(root);
+            // Left over by writes interrupted before they were moved into place
+            try (Stream<Path> files = Files.walk(root)) {
+                files.filter(file -> file.toString().endsWith(".tmp")).forEach(PageTextCache::delete);
+            }
+            // Oldest first, so that recency after a restart follows write time
+            try (Stream<Path> files = Files.walk(root)) {
+                files.filter(file -> file.toString().endsWith(".txt"))
+                    .sorted(Comparator.comparingLong(PageTextCache::lastModified))
+                    .forEach(file -> add(file, size(file)));
+            }
+            synchronized (entries) {
+                evict();
+            }
+            logger.info("PDF page text cache at {}: {} pages, {} bytes", root, entries.size(), totalBytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open page text cache at " + root, e);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return SHA-256 of the file's content; recomputed only when its size or modification time
+     * changed since the last call
+     */
+    public String hashOf(Path file) throws IOException {
+        long size = Files.size(file);
+        long modified = Files.getLastModifiedTime(file).toMillis();
+        String key = file.toAbsolutePath().toString();
+        FileHash known = fileHashes.get(key);
+        if (known != null && known.size() == size && known.modified() == modified) {
+            return known.hash();
+        }
+        String hash = ContentHash.of(file);
+        fileHashes.put(key, new FileHash(size, modified, hash));
+        return hash;
+    }
+
+    /**
+     * @return the cached text of the pages in {@code [startPage, endPage]}, by page number;
+     * pages not cached are absent
+     */
+    public Map<Integer, String> get(String fileHash, boolean usePlaceholder, int startPage, int endPage) {
+        Map<Integer, String> pages = new HashMap<>();
+        for (int page = startPage; page <= endPage; page++) {
+            Path file = null;
+            synchronized (entries) {
+                for (String variant : List.of(SHARED, variant(usePlaceholder))) {
+                    Path candidate = pageFile(fileHash, variant, page);
+                    if (entries.get(candidate) != null) {
+                        file = candidate;
+                        break;
+                    }
+                }
+            }
+            if (file == null) {
+                continue;
+            }
+            try {
+                pages.put(page, Files.readString(file, StandardCharsets.UTF_8));
+            } catch (NoSuchFileException e) {
+                // Evicted or purged since the lookup
+                remove(file);
+            } catch (IOException e) {
+                logger.warn("Cannot read cached page {}: {}", file, e.getMessage());
+                remove(file);
+            }
+        }
+        hits.addAndGet(pages.size());
+        misses.addAndGet(endPage - startPage + 1 - pages.size());
+        return pages;
+    }
+
+    /**
+     * Stores the text of consecutive pages, starting at {@code startPage}. Failures are logged:
+     * the pages are simply extracted again next time.
+     *
+     * @param hasImages for each page, whether it has images, so its text depends on the mode
+     */
+    public void put(String fileHash, boolean usePlaceholder, int startPage, List<String> pages,
+                    List<Boolean> hasImages) {
+        for (int i = 0; i < pages.size(); i++) {
+            String variant = hasImages.get(i) ? variant(usePlaceholder) : SHARED;
+            Path file = pageFile(fileHash, variant, startPage + i);
+            try {
+                write(file, pages.get(i));
+                add(file, Files.size(file));
+            } catch (IOException e) {
+                logger.warn("Cannot cache page {}: {}", file, e.getMessage());
+            }
+        }
+        synchronized (entries) {
+            evict();
+        }
+    }
+
+    /**
+     * @return number of pages of the document, or null if none of its pages was cached yet
+     */
+    public Integer getPageCount(String fileHash) {
+        Path file = pageCountFile(fileHash);
+        try {
+            return Integer.valueOf(Files.readString(file, StandardCharsets.UTF_8).trim());
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException | NumberFormatException e) {
+            logger.warn("Cannot read cached page count {}: {}", file, e.getMessage());
+            return null;
+        }
+    }
+
+    public void putPageCount(String fileHash, int pageCount) {
+        Path file = pageCountFile(fileHash);
+        try {
+            write(file, String.valueOf(pageCount));
+        } catch (IOException e) {
+            logger.warn("Cannot cache page count {}: {}", file, e.getMessage());
+        }
+    }
+
+    /**
+     * Deletes every cached page of the document, in all placeholder modes.
+     *
+     * @return number of pages deleted
+     */
+    public int purge(String fileHash) {
+        if (!enabled) {
+            return 0;
+        }
+        Path documentDir = pageCountFile(fileHash).getParent();
+        int purged = 0;
+        synchronized (entries) {
+            Iterator<Map.Entry<Path, Long>> iterator = entries.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<Path, Long> entry = iterator.next();
+                if (entry.getKey().startsWith(documentDir)) {
+                    delete(entry.getKey());
+                    totalBytes -= entry.getValue();
+                    iterator.remove();
+                    purged++;
+                }
+            }
+        }
+        delete(pageCountFile(fileHash));
+        for (String variant : VARIANTS) {
+            delete(documentDir.resolve(variant));
+        }
+        delete(documentDir);
+        logger.info("Purged {} cached pages of document {}", purged, fileHash);
+        return purged;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        if (enabled) {
+            stats.put("dir", root.toString());
+            stats.put("maxBytes", maxBytes);
+            synchronized (entries) {
+                stats.put("pages", entries.size());
+                stats.put("bytes", totalBytes);
+            }
+        }
+        stats.put("hits", hits.get());
+        stats.put("misses", misses.get());
+        stats.put("evictions", evictions.get());
+        return stats;
+    }
+
+    private static String variant(boolean usePlaceholder) {
+        return usePlaceholder ? "placeholder" : "vision";
+    }
+
+    private Path documentDir(String fileHash) {
+        if (!fileHash.matches("[0-9a-f]{64}")) {
+            throw new IllegalArgumentException("Invalid document hash: " + fileHash);
+        }
+        return root.resolve(fileHash);
+    }
+
+    private Path pageFile(String fileHash, String variant, int page) {
+        return documentDir(fileHash).resolve(variant).resolve(page + ".txt");
+    }
+
+    // Written aside and moved into place, so readers never see a partial file
+    private static void write(Path file, String content) throws IOException {
+        Files.createDirectories(file.getParent());
+        Path temp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+        try {
+            Files.writeString(temp, content, StandardCharsets.UTF_8);
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    // Not part of the LRU index: a few bytes per document, removed with the document on purge
+    private Path pageCountFile(String fileHash) {
+        return documentDir(fileHash).resolve("page-count");
+    }
+
+    private void add(Path file, long size) {
+        synchronized (entries) {
+            Long previous = entries.put(file, size);
+            totalBytes += size - (previous != null ? previous : 0L);
+        }
+    }
+
+    private void remove(Path file) {
+        synchronized (entries) {
+            Long size = entries.remove(file);
+            if (size != null) {
+                totalBytes -= size;
+            }
+        }
+    }
+
+    // Caller holds the lock on entries
+    private void evict() {
+        Iterator<Map.Entry<Path, Long>> iterator = entries.entrySet().iterator();
+        while (totalBytes > maxBytes && iterator.hasNext()) {
+            Map.Entry<Path, Long> eldest = iterator.next();
+            delete(eldest.getKey());
+            totalBytes -= eldest.getValue();
+            iterator.remove();
+            evictions.incrementAndGet();
+        }
+    }
+
+    private static void delete(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            logger.warn("Cannot delete {} from the page text cache: {}", file, e.getMessage());
+        }
+    }
+
+    private static long size(Path file) {
+        try {
+            return Files.size(file);
+        } catch (IOException e) {
+            return 0L;
+        }
+    }
+
+    private static long lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file).toMillis();
+        } catch (IOException e) {
+            return 0L;
+        }
+    }
+}
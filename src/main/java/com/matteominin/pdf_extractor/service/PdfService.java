@@ -1,34 +1,75 @@
 package com.matteominin.pdf_extractor.service;
 
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.apache.pdfbox.Loader;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.text.PDFTextStripper;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.FileSystemResource;
-import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
 import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
-import org.springframework.web.client.RestClient;
 import lombok.extern.slf4j.Slf4j;
 
+import com.matteominin.pdf_extractor.config.SidecarClient;
 import com.matteominin.pdf_extractor.model.pdf.ExtractedSection;
 import com.matteominin.pdf_extractor.model.pdf.PdfIndex;
+import com.matteominin.pdf_extractor.util.SectionSplitter;
 
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Service
 @Slf4j
 public class PdfService {
 
-    @Value("${app.api.base-url}")
-    private String apiUrl;
+    @Autowired
+    private SidecarClient sidecarClient;
+
+    @Autowired
+    private PageTextCache pageTextCache;
+
+    @Autowired
+    private PdfTextExtractor pdfTextExtractor;
+
+    @Value("${app.pdf.parallel.enabled:true}")
+    private boolean parallelEnabled;
+
+    @Value("${app.pdf.parallel.chunk-pages:25}")
+    private int chunkPages;
+
+    @Value("${app.pdf.parallel.max-concurrency:4}")
+    private int maxConcurrency;
+
+    private ExecutorService extractionExecutor;
+
+    @PostConstruct
+    public void init() {
+        chunkPages = Math.max(1, chunkPages);
+        AtomicInteger threadCount = new AtomicInteger();
+        extractionExecutor = Executors.newFixedThreadPool(Math.max(1, maxConcurrency), runnable -> {
+            Thread thread = new Thread(runnable, "pdf-extraction-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        extractionExecutor.shutdownNow();
+    }
     
     public String extractText(String filePath, String outputDirectory) {
         log.info("Starting text and image extraction for: {}", filePath);
@@ -92,60 +133,36 @@ public class PdfService {
         log.info("Extracting {} sections from PDF: {}", index.getSections().size(), filePath);
 
         validateExtractionRequest(filePath, index);
+        if (!new File(filePath).exists()) {
+            throw new IllegalArgumentException("PDF file not found, filepath:" + filePath);
+        }
 
         List<ExtractedSection> sections = new ArrayList<>();
-        PDDocument document = null;
 
         try {
-            document = loadPDF(filePath);
-            String pdfText = extractTextViaPythonApi(filePath, 1, document.getNumberOfPages(),  false);
-            pdfText = removeIndexFromText(pdfText, index);
-            // Extract all sections except the last one
-            for (int i = 0; i < index.getSections().size() - 1; i++) {
-                PdfIndex.Section currentSection = index.getSections().get(i);
-                PdfIndex.Section nextSection = index.getSections().get(i + 1);
-
-                String text = extractSingleSection(
-                    document,
-                    pdfText,
-                    currentSection.getSection(),
-                    nextSection.getSection(),
-                    currentSection.getStart(),
-                    nextSection.getStart(),
-                    index
-                );
-
+            // end_page -1: up to the last page, without loading the document here
+            String pdfText = extractTextViaPythonApi(filePath, 1, -1, false);
+
+            // All titles are located in one pass; the table of contents, between the first two
+            // occurrences of the first title, is skipped
+            List<String> titles = index.getSections().stream().map(PdfIndex.Section::getSection).toList();
+            List<String> texts = SectionSplitter.split(pdfText, titles, true);
+            for (int i = 0; i < titles.size(); i++) {
+                if (texts.get(i).isEmpty()) {
+                    log.warn("No content found for section: {}", titles.get(i));
+                }
                 sections.add(ExtractedSection.builder()
-                    .section(currentSection.getSection())
-                    .text(text)
+                    .section(titles.get(i))
+                    .text(texts.get(i))
                     .build());
             }
 
-            // Extract the last section
-            PdfIndex.Section lastSection = index.getSections().get(index.getSections().size() - 1);
-            String text = extractSingleSection(
-                document,
-                pdfText,
-                lastSection.getSection(),
-                null,
-                lastSection.getStart(),
-                lastSection.getEnd(),
-                index
-            );
-
-            sections.add(ExtractedSection.builder()
-                .section(lastSection.getSection())
-                .text(text)
-                .build());
-
             log.info("Successfully extracted {} sections from PDF", sections.size());
             return sections;
 
-        } catch (IOException e) {
+        } catch (Exception e) {
             log.error("Error extracting sections from PDF: {}", filePath, e);
             throw new RuntimeException("Error extracting sections from PDF: " + filePath, e);
-        } finally {
-            closeDocument(document);
         }
     }
 
@@ -168,32 +185,192 @@ public class PdfService {
         }
     }
 
-    private String extractSingleSection(PDDocument document, String pdfText, String currentSectionTitle, String nextSectionTitle,
-                                             int startPage, int endPage, PdfIndex index) {
-        try {
-            // Extract the specific section using regex
-            String pattern = "(?s)" + Pattern.quote(currentSectionTitle) + "(.*?)" +
-                           (nextSectionTitle != null ? Pattern.quote(nextSectionTitle) : "$");
-            Pattern regex = Pattern.compile(pattern);
-            Matcher matcher = regex.matcher(pdfText);
-
-            if (matcher.find()) {
-                String sectionText = matcher.group(1).trim();
-                log.debug("Successfully extracted section '{}', length: {}", currentSectionTitle, sectionText.length());
-                return sectionText;
+    /**
+     * Extracts the text of a page range with image placeholders, as used for the index pages.
+     * No image descriptions are needed, so the text is extracted in process unless
+     * {@code app.pdf.local.enabled} is off. The in-process text bypasses the
+     * {@link PageTextCache}, as it is not formatted exactly as the sidecar's.
+     *
+     * @param endPage last page, or -1 for the last page of the document
+     */
+    public String extractPlaceholderText(String filePath, int startPage, int endPage) {
+        validateFilePath(filePath);
+        validatePageRange(startPage, endPage);
+        if (pdfTextExtractor.isEnabled()) {
+            return pdfTextExtractor.extract(filePath, startPage, endPage);
+        }
+        return extractTextViaPythonApi(filePath, startPage, endPage, true);
+    }
+
+    /**
+     * Extracts the text of a page range through the sidecar. Pages already in the
+     * {@link PageTextCache} are read from disk, and only the missing ones are requested. Ranges
+     * longer than {@code app.pdf.parallel.chunk-pages} are split into chunks of that many pages,
+     * requested concurrently. Pages are joined in order with the blank line the sidecar puts
+     * between pages, so the result is the same as a single request.
+     * <p>
+     * The PDF is not opened here: the sidecar reports the number of pages with each chunk, so
+     * when it is not known yet the first chunk is requested alone and the rest is sized from it.
+     *
+     * @param endPage last page, or -1 for the last page of the document
+     */
+    public String extractTextViaPythonApi(String filePath, int startPage, int endPage, boolean usePlaceholder) {
+        if (!pageTextCache.isEnabled()
+                && (!parallelEnabled || (endPage != -1 && endPage - startPage + 1 <= chunkPages))) {
+            return requestText(filePath, startPage, endPage, usePlaceholder);
+        }
+        validateFilePath(filePath);
+        File file = new File(filePath);
+        if (!file.exists()) {
+            throw new IllegalArgumentException("File not found: " + filePath);
+        }
+
+        String fileHash = null;
+        Integer totalPages = null;
+        if (pageTextCache.isEnabled()) {
+            try {
+                fileHash = pageTextCache.hashOf(file.toPath());
+                totalPages = pageTextCache.getPageCount(fileHash);
+            } catch (IOException e) {
+                log.warn("Cannot hash {} for the page text cache, extracting without it: {}", filePath, e.getMessage());
+            }
+        }
+
+        PageTexts first = null;
+        if (totalPages == null) {
+            int firstEnd = startPage + chunkPages - 1;
+            first = requestPageTexts(filePath, startPage, endPage == -1 ? firstEnd : Math.min(endPage, firstEnd),
+                usePlaceholder);
+            store(fileHash, usePlaceholder, startPage, first);
+            totalPages = first.totalPages();
+        }
+        int lastPage = endPage == -1 ? totalPages : Math.min(endPage, totalPages);
+        if (lastPage < startPage) {
+            return "";
+        }
+
+        String[] pages = new String[lastPage - startPage + 1];
+        if (first != null) {
+            for (int i = 0; i < first.pages().size(); i++) {
+                pages[i] = first.pages().get(i);
+            }
+        } else if (fileHash != null) {
+            pageTextCache.get(fileHash, usePlaceholder, startPage, lastPage)
+                .forEach((page, text) -> pages[page - startPage] = text);
+        }
+
+        // Missing pages, in runs of consecutive pages cut at the chunk size
+        List<int[]> ranges = new ArrayList<>();
+        for (int page = startPage; page <= lastPage; page++) {
+            if (pages[page - startPage] != null) {
+                continue;
+            }
+            int[] last = ranges.isEmpty() ? null : ranges.get(ranges.size() - 1);
+            if (last != null && last[1] == page - 1 && page - last[0] < chunkPages) {
+                last[1] = page;
             } else {
-                log.warn("No content found for section: {}", currentSectionTitle);
-                return "";
+                ranges.add(new int[]{page, page});
             }
-        } catch (Exception e) {
-            log.error("Error extracting section '{}' from PDF", currentSectionTitle, e);
-            throw new RuntimeException("Error extracting section from PDF", e);
         }
+        if (ranges.isEmpty()) {
+            if (first == null) {
+                log.debug("Pages {}-{} of {} served from the page text cache", startPage, lastPage, filePath);
+            }
+            return String.join("\n\n", pages);
+        }
+        if (ranges.size() > 1) {
+            log.info("Extracting {} of pages {}-{} of {} in {} requests of up to {} pages", countMissing(pages),
+                startPage, lastPage, filePath, ranges.size(), chunkPages);
+        }
+
+        List<CompletableFuture<PageTexts>> requests = new ArrayList<>();
+        for (int[] range : ranges) {
+            if (parallelEnabled) {
+                requests.add(CompletableFuture.supplyAsync(
+                    () -> requestPageTexts(filePath, range[0], range[1], usePlaceholder), extractionExecutor));
+            } else {
+                requests.add(CompletableFuture.completedFuture(
+                    requestPageTexts(filePath, range[0], range[1], usePlaceholder)));
+            }
+        }
+
+        try {
+            for (int i = 0; i < ranges.size(); i++) {
+                int from = ranges.get(i)[0];
+                PageTexts texts = requests.get(i).join();
+                for (int j = 0; j < texts.pages().size(); j++) {
+                    pages[from - startPage + j] = texts.pages().get(j);
+                }
+                store(fileHash, usePlaceholder, from, texts);
+            }
+        } catch (CompletionException e) {
+            requests.forEach(request -> request.cancel(false));
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+        return String.join("\n\n", pages);
     }
 
-    public String extractTextViaPythonApi(String filePath, int startPage, int endPage, boolean usePlaceholder) {
+    private void store(String fileHash, boolean usePlaceholder, int startPage, PageTexts texts) {
+        if (fileHash != null) {
+            pageTextCache.put(fileHash, usePlaceholder, startPage, texts.pages(), texts.hasImages());
+            pageTextCache.putPageCount(fileHash, texts.totalPages());
+        }
+    }
+
+    private static long countMissing(String[] pages) {
+        return Arrays.stream(pages).filter(Objects::isNull).count();
+    }
+
+    /**
+     * One request for the whole range, joined by the sidecar.
+     */
+    private String requestText(String filePath, int startPage, int endPage, boolean usePlaceholder) {
+        Map<String, Object> pythonResponse = requestPages(filePath, startPage, endPage, usePlaceholder, false);
+        String text = pythonResponse.get("text").toString();
+        log.debug("Extracted {} characters from pages {}-{} via Python API", text.length(), startPage, endPage);
+        return text;
+    }
+
+    /**
+     * Text of each page of a range, whether each page has images, and the number of pages of the
+     * document, as reported by the sidecar
+     */
+    private record PageTexts(List<String> pages, List<Boolean> hasImages, int totalPages) {
+    }
+
+    /**
+     * One request for the range, with the text of each page returned separately. Pages past the
+     * end of the document are left out.
+     */
+    private PageTexts requestPageTexts(String filePath, int startPage, int endPage, boolean usePlaceholder) {
+        Map<String, Object> pythonResponse = requestPages(filePath, startPage, endPage, usePlaceholder, true);
+        if (!(pythonResponse.get("total_pages") instanceof Number totalPages)) {
+            throw new RuntimeException("Python API did not return the page count of " + filePath
+                + "; the sidecar is older than this service");
+        }
+        int expected = Math.max(0, Math.min(endPage, totalPages.intValue()) - startPage + 1);
+        if (!(pythonResponse.get("pages") instanceof List<?> pages) || pages.size() != expected) {
+            throw new RuntimeException("Python API returned an unexpected page list for pages "
+                + startPage + "-" + endPage + " of " + filePath);
+        }
+        List<String> texts = new ArrayList<>(pages.size());
+        for (Object page : pages) {
+            texts.add(page != null ? page.toString() : "");
+        }
+        // Without the flags every page is taken to have images, so nothing is shared across modes
+        List<Boolean> hasImages = new ArrayList<>(pages.size());
+        List<?> flags = pythonResponse.get("has_images") instanceof List<?> list && list.size() == pages.size()
+            ? list : null;
+        for (int i = 0; i < pages.size(); i++) {
+            hasImages.add(flags == null || !Boolean.FALSE.equals(flags.get(i)));
+        }
+        log.debug("Extracted {} pages {}-{} via Python API", texts.size(), startPage, endPage);
+        return new PageTexts(texts, hasImages, totalPages.intValue());
+    }
+
+    private Map<String, Object> requestPages(String filePath, int startPage, int endPage, boolean usePlaceholder,
+                                             boolean returnPages) {
         try {
-            final String url = apiUrl + "/extract";
             File file = new File(filePath);
 
             if (!file.exists()) {
@@ -206,24 +383,9 @@ public class PdfService {
             parts.add("start_page", String.valueOf(startPage));
             parts.add("end_page", String.valueOf(endPage));
             parts.add("use_placeholder", String.valueOf(usePlaceholder));
+            parts.add("return_pages", String.valueOf(returnPages));
 
-            RestClient restClient = RestClient.create();
-
-            @SuppressWarnings("unchecked")
-            Map<String, Object> pythonResponse = restClient.post()
-                    .uri(url)
-                    .contentType(MediaType.MULTIPART_FORM_DATA)
-                    .body(parts)
-                    .retrieve()
-                    .body(Map.class);
-
-            if (pythonResponse == null) {
-                throw new RuntimeException("No response from PDF extraction service");
-            }
-
-            String text = pythonResponse.get("text").toString();
-            log.debug("Extracted {} characters from pages {}-{} via Python API", text.length(), startPage, endPage);
-            return text;
+            return sidecarClient.extract("pages", parts);
 
         } catch (Exception e) {
             log.error("Error calling Python API for text extraction", e);
@@ -231,28 +393,6 @@ public class PdfService {
         }
     }
 
-    private String removeIndexFromText(String fullText, PdfIndex index) {
-        String firstContentTitle = index.getSections().get(0).getSection();
-
-        // Build regex to match everything between the first occurrence and the next occurrence of the first section title
-        String pattern = "(?s)" + Pattern.quote(firstContentTitle) + "(.*?)" + Pattern.quote(firstContentTitle);
-        Pattern regex = Pattern.compile(pattern);
-        Matcher matcher = regex.matcher(fullText);
-
-        if (matcher.find()) {
-            StringBuilder sb = new StringBuilder();
-            sb.append(fullText.substring(0, matcher.start()));
-            sb.append(firstContentTitle);
-            sb.append(fullText.substring(matcher.end()));
-            String cleanedText = sb.toString();
-            log.debug("Successfully removed index from text");
-            return cleanedText;
-        } else {
-            log.debug("No index pattern found, returning original text");
-            return fullText;
-        }
-    }
-
     private void validateFilePath(String filePath) {
         if (filePath == null || filePath.trim().isEmpty()) {
             throw new IllegalArgumentException("File path cannot be null or empty");
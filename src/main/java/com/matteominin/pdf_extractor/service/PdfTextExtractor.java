@@ -0,0 +1,273 @@
+package com.matteominin.pdf_extractor.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.contentstream.operator.Operator;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.io.IOUtils;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.apache.pdfbox.text.TextPosition;
+import org.apache.pdfbox.util.Matrix;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Text extraction with PDFBox, in process, for requests that do not need image descriptions:
+ * images are replaced by the same {@code [IMAGE n]: [IMAGE]} placeholder lines the sidecar
+ * writes in placeholder mode, and pages are joined with a blank line as the sidecar does.
+ * Long ranges are split into chunks extracted concurrently, each worker with its own
+ * document handle and text stripper, since neither is thread-safe.
+ */
+@Component
+public class PdfTextExtractor {
+
+    private static final Logger logger = LoggerFactory.getLogger(PdfTextExtractor.class);
+
+    @Value("${app.pdf.local.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.pdf.local.chunk-pages:8}")
+    private int chunkPages;
+
+    // 0 for one thread per available processor
+    @Value("${app.pdf.local.threads:0}")
+    private int threads;
+
+    @Value("${app.pdf.local.placeholder-text:[IMAGE]}")
+    private String placeholderText;
+
+    private ExecutorService executor;
+    private int poolSize;
+
+    @PostConstruct
+    public void init() {
+        chunkPages = Math.max(1, chunkPages);
+        poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadCount = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(poolSize, runnable -> {
+            Thread thread = new Thread(runnable, "pdf-text-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @param endPage last page, or -1 for the last page of the document
+     */
+    public String extract(String filePath, int startPage, int endPage) {
+        File file = new File(filePath);
+        if (!file.exists()) {
+            throw new IllegalArgumentException("PDF file not found, filepath:" + filePath);
+        }
+
+        int lastPage;
+        int pagesPerChunk;
+        try (PDDocument document = load(file)) {
+            int totalPages = document.getNumberOfPages();
+            lastPage = endPage == -1 ? totalPages : Math.min(endPage, totalPages);
+            // Loading the document and its fonts is paid once per chunk, so no more chunks than workers
+            int pages = lastPage - startPage + 1;
+            pagesPerChunk = Math.max(chunkPages, (pages + poolSize - 1) / poolSize);
+            if (pages <= pagesPerChunk) {
+                return String.join("\n\n", extractPages(document, startPage, lastPage));
+            }
+        } catch (IOException e) {
+            logger.error("Error extracting text from PDF: {}", filePath, e);
+            throw new RuntimeException("Error reading PDF: " + filePath, e);
+        }
+
+        List<CompletableFuture<List<String>>> chunks = new ArrayList<>();
+        for (int chunkStart = startPage; chunkStart <= lastPage; chunkStart += pagesPerChunk) {
+            int from = chunkStart;
+            int to = Math.min(chunkStart + pagesPerChunk - 1, lastPage);
+            chunks.add(CompletableFuture.supplyAsync(() -> {
+                try (PDDocument document = load(file)) {
+                    return extractPages(document, from, to);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }, executor));
+        }
+        logger.info("Extracting pages {}-{} of {} locally in {} chunks of up to {} pages", startPage, lastPage,
+            filePath, chunks.size(), pagesPerChunk);
+
+        try {
+            List<String> pages = new ArrayList<>();
+            for (CompletableFuture<List<String>> chunk : chunks) {
+                pages.addAll(chunk.join());
+            }
+            return String.join("\n\n", pages);
+        } catch (CompletionException e) {
+            chunks.forEach(chunk -> chunk.cancel(false));
+            logger.error("Error extracting text from PDF: {}", filePath, e.getCause());
+            throw new RuntimeException("Error reading PDF: " + filePath, e.getCause());
+        }
+    }
+
+    private static PDDocument load(File file) throws IOException {
+        return Loader.loadPDF(file, null, null, null, IOUtils.createTempFileOnlyStreamCache());
+    }
+
+    private List<String> extractPages(PDDocument document, int startPage, int endPage) throws IOException {
+        PlaceholderTextStripper stripper = new PlaceholderTextStripper(placeholderText);
+        List<String> pages = new ArrayList<>();
+        for (int page = startPage; page <= endPage; page++) {
+            stripper.setStartPage(page);
+            stripper.setEndPage(page);
+            pages.add(stripper.getText(document));
+        }
+        return pages;
+    }
+
+    /**
+     * Text stripper that notes where images are drawn and writes a placeholder line for each,
+     * between the text lines above and below it, as the sidecar merges images by vertical
+     * position. Text is written once the whole page has been read, so all image positions are
+     * known by then.
+     * <p>
+     * Images are numbered as the sidecar numbers them, by their order in the page's XObject
+     * resources, drawn or not. Images drawn from inside form XObjects are not in that
+     * dictionary; they are numbered after it, in drawing order, which may differ from the
+     * sidecar's numbering of nested images.
+     */
+    private static class PlaceholderTextStripper extends PDFTextStripper {
+
+        private final String placeholderText;
+
+        // Image streams of the current page -> their [IMAGE n] number
+        private final Map<COSBase, Integer> imageNumbers = new IdentityHashMap<>();
+        // Vertical centers of the images of the current page, from the top, in drawing order,
+        // and their numbers
+        private final List<Float> imagePositions = new ArrayList<>();
+        private final List<Integer> drawnNumbers = new ArrayList<>();
+        private final List<Boolean> written = new ArrayList<>();
+        private boolean atLineStart;
+
+        PlaceholderTextStripper(String placeholderText) {
+            this.placeholderText = placeholderText;
+        }
+
+        @Override
+        protected void startPage(PDPage page) throws IOException {
+            imageNumbers.clear();
+            imagePositions.clear();
+            drawnNumbers.clear();
+            written.clear();
+            if (page.getResources() != null) {
+                COSDictionary xObjects = page.getResources().getCOSObject().getCOSDictionary(COSName.XOBJECT);
+                if (xObjects != null) {
+                    for (COSName name : xObjects.keySet()) {
+                        COSBase xObject = imageStream(xObjects, name);
+                        if (xObject != null) {
+                            imageNumbers.putIfAbsent(xObject, imageNumbers.size() + 1);
+                        }
+                    }
+                }
+            }
+            atLineStart = true;
+            super.startPage(page);
+        }
+
+        @Override
+        protected void processOperator(Operator operator, List<COSBase> operands) throws IOException {
+            if ("Do".equals(operator.getName()) && !operands.isEmpty() && operands.get(0) instanceof COSName name
+                    && getResources() != null) {
+                COSBase image = imageStream(getResources().getCOSObject().getCOSDictionary(COSName.XOBJECT), name);
+                if (image != null && !imageNumbers.containsKey(image)) {
+                    imageNumbers.put(image, imageNumbers.size() + 1);
+                }
+                // Each image once, where it is first drawn, as the sidecar takes its first rectangle
+                if (image != null && !drawnNumbers.contains(imageNumbers.get(image))) {
+                    // The image fills the unit square mapped by the current transformation
+                    Matrix ctm = getGraphicsState().getCurrentTransformationMatrix();
+                    float center = ctm.getTranslateY() + ctm.getScalingFactorY() / 2;
+                    imagePositions.add(getCurrentPage().getMediaBox().getHeight() - center);
+                    drawnNumbers.add(imageNumbers.get(image));
+                    written.add(false);
+                }
+            }
+            super.processOperator(operator, operands);
+        }
+
+        @Override
+        protected void writeString(String text, List<TextPosition> textPositions) throws IOException {
+            if (atLineStart && !textPositions.isEmpty()) {
+                writeImagesAbove(textPositions.get(0).getYDirAdj());
+            }
+            atLineStart = false;
+            super.writeString(text, textPositions);
+        }
+
+        @Override
+        protected void writeLineSeparator() throws IOException {
+            super.writeLineSeparator();
+            atLineStart = true;
+        }
+
+        @Override
+        protected void writePageEnd() throws IOException {
+            writeImagesAbove(Float.MAX_VALUE);
+            super.writePageEnd();
+        }
+
+        private void writeImagesAbove(float y) throws IOException {
+            List<Integer> pending = new ArrayList<>();
+            for (int i = 0; i < imagePositions.size(); i++) {
+                if (imagePositions.get(i) < y && !written.get(i)) {
+                    pending.add(i);
+                }
+            }
+            pending.sort((a, b) -> Float.compare(imagePositions.get(a), imagePositions.get(b)));
+            for (int image : pending) {
+                if (!atLineStart) {
+                    output.write(getLineSeparator());
+                }
+                output.write(getLineSeparator() + "[IMAGE " + drawnNumbers.get(image) + "]: " + placeholderText
+                    + getLineSeparator() + getLineSeparator());
+                written.set(image, true);
+                atLineStart = true;
+            }
+        }
+
+        // The image stream named in an XObject dictionary, or null if it is not an image
+        private static COSBase imageStream(COSDictionary xObjects, COSName name) {
+            if (xObjects == null) {
+                return null;
+            }
+            COSBase xObject = xObjects.getDictionaryObject(name);
+            return xObject instanceof COSStream stream && COSName.IMAGE.equals(stream.getCOSName(COSName.SUBTYPE))
+                ? stream
+                : null;
+        }
+    }
+}
@@ -1,13 +1,21 @@
 package com.matteominin.pdf_extractor.service;
 
 import com.matteominin.pdf_extractor.model.feature.SummaryFeature;
+import com.matteominin.pdf_extractor.model.feature.SummaryFeatureView;
+import com.matteominin.pdf_extractor.model.ingestion.BulkUpsertResult;
+import com.matteominin.pdf_extractor.repository.SummaryFeatureChangeFeed;
 import com.matteominin.pdf_extractor.repository.SummaryFeatureRepository;
+import jakarta.annotation.PostConstruct;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 @Service
 public class SummaryFeatureService {
@@ -20,6 +28,40 @@ public class SummaryFeatureService {
    @Autowired
    private EmbeddingService embeddingService; 
 
+    // Absent unless MongoDB change streams are enabled
+    @Autowired(required = false)
+    private SummaryFeatureChangeFeed changeFeed;
+
+    // All summary features by ID, kept current by change events. Only used while the change
+    // stream is active; null until loaded or after a reset.
+    private final Object cacheLock = new Object();
+    private Map<String, SummaryFeature> cache;
+    // Incremented on every change, so that a load overlapping a change is not cached
+    private long cacheGeneration;
+
+    @PostConstruct
+    public void registerCacheListener() {
+        if (changeFeed == null) {
+            return;
+        }
+        changeFeed.register(new SummaryFeatureChangeFeed.Listener() {
+            @Override
+            public void onSaved(SummaryFeature summaryFeature) {
+                applyChange(summaryFeature.getId(), summaryFeature);
+            }
+
+            @Override
+            public void onDeleted(String id) {
+                applyChange(id, null);
+            }
+
+            @Override
+            public void onReset() {
+                invalidateCache();
+            }
+        });
+    }
+
     public List<SummaryFeature> embedSummaryFeatures(List<SummaryFeature> summaryFeatures) {
         for(SummaryFeature feature : summaryFeatures) {
             if(feature.getFeature() == null && feature.getFeature().trim().isEmpty()) {
@@ -40,9 +82,9 @@ public class SummaryFeatureService {
      * Save a list of summary features to the database.
      * 
      * @param summaryFeatures List of summary features to save
-     * @return List of IDs of saved summary features
+     * @return IDs of saved summary features and per-chunk inserted/matched/failed counts
      */
-    public List<String> saveSummaryFeatures(List<SummaryFeature> summaryFeatures) {
+    public BulkUpsertResult saveSummaryFeatures(List<SummaryFeature> summaryFeatures) {
         if (summaryFeatures == null || summaryFeatures.isEmpty()) {
             throw new IllegalArgumentException("Summary features list cannot be null or empty");
         }
@@ -56,15 +98,33 @@ public class SummaryFeatureService {
         
         try {
             summaryFeatures = embedSummaryFeatures(summaryFeatures);
-            List<String> ids = summaryFeatureRepository.saveAll(summaryFeatures);
-            logger.info("Successfully saved {} summary features", summaryFeatures.size());
-            return ids;
+            BulkUpsertResult result = summaryFeatureRepository.saveAll(summaryFeatures);
+            // Read-your-writes without waiting for the change event
+            invalidateCache();
+            logger.info("Successfully saved {} summary features ({} new)", summaryFeatures.size(), result.getInserted());
+            return result;
         } catch (Exception e) {
             logger.error("Failed to save summary features: {}", e.getMessage(), e);
             throw new RuntimeException("Failed to save summary features", e);
         }
     }
     
+    /**
+     * Get the listing view of all summary features.
+     * 
+     * @param include heavy fields to include ("embedding")
+     * @return List of summary feature views
+     */
+    public List<SummaryFeatureView> getSummaryFeatureViews(Collection<String> include) {
+        for (String field : include) {
+            if (!SummaryFeatureRepository.OPTIONAL_VIEW_FIELDS.contains(field)) {
+                throw new IllegalArgumentException("Unknown include field: " + field
+                    + " (allowed: " + SummaryFeatureRepository.OPTIONAL_VIEW_FIELDS + ")");
+            }
+        }
+        return summaryFeatureRepository.findAllViews(include);
+    }
+    
     /**
      * Get all summary features from the database.
      * 
@@ -72,7 +132,9 @@ public class SummaryFeatureService {
      */
     public List<SummaryFeature> getAllSummaryFeatures() {
         try {
-            List<SummaryFeature> summaryFeatures = summaryFeatureRepository.findAll();
+            List<SummaryFeature> summaryFeatures = changeFeed != null && changeFeed.isActive()
+                ? getCachedSummaryFeatures()
+                : summaryFeatureRepository.findAll();
             logger.debug("Retrieved {} summary features", summaryFeatures.size());
             return summaryFeatures;
         } catch (Exception e) {
@@ -97,4 +159,62 @@ public class SummaryFeatureService {
             throw new RuntimeException("Failed to retrieve summary feature", e);
         }
     }
+
+    /**
+     * Get summary features by ID with one database round trip.
+     * 
+     * @param ids The IDs of the summary features
+     * @return Summary features keyed by ID, without embeddings
+     */
+    public Map<String, SummaryFeature> getSummaryFeaturesByIds(Collection<String> ids) {
+        try {
+            Map<String, SummaryFeature> summaryFeatures = summaryFeatureRepository.findByIds(ids);
+            logger.debug("Retrieved {} of {} requested summary features", summaryFeatures.size(), ids.size());
+            return summaryFeatures;
+        } catch (Exception e) {
+            logger.error("Failed to retrieve summary features by IDs: {}", e.getMessage(), e);
+            throw new RuntimeException("Failed to retrieve summary features", e);
+        }
+    }
+
+    private List<SummaryFeature> getCachedSummaryFeatures() {
+        long generation;
+        synchronized (cacheLock) {
+            if (cache != null) {
+                return new ArrayList<>(cache.values());
+            }
+            generation = cacheGeneration;
+        }
+
+        List<SummaryFeature> summaryFeatures = summaryFeatureRepository.findAll();
+        synchronized (cacheLock) {
+            if (cacheGeneration == generation) {
+                cache = new LinkedHashMap<>();
+                summaryFeatures.forEach(summaryFeature -> cache.put(summaryFeature.getId(), summaryFeature));
+            }
+        }
+        return summaryFeatures;
+    }
+
+    // A null summary feature means it was deleted
+    private void applyChange(String id, SummaryFeature summaryFeature) {
+        synchronized (cacheLock) {
+            cacheGeneration++;
+            if (cache == null) {
+                return;
+            }
+            if (summaryFeature != null) {
+                cache.put(id, summaryFeature);
+            } else {
+                cache.remove(id);
+            }
+        }
+    }
+
+    private void invalidateCache() {
+        synchronized (cacheLock) {
+            cacheGeneration++;
+            cache = null;
+        }
+    }
 }
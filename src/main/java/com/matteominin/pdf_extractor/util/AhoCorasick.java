@@ -0,0 +1,99 @@
+package com.matteominin.pdf_extractor.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+
+/**
+ * Aho–Corasick automaton over a fixed set of patterns: finds every occurrence of every pattern
+ * in a text in one pass, in time linear in the text length plus the number of matches.
+ */
+public final class AhoCorasick {
+
+    /**
+     * Receives matches in order of their end offset.
+     */
+    @FunctionalInterface
+    public interface MatchHandler {
+        void onMatch(int pattern, int start, int end);
+    }
+
+    private final List<Map<Character, Integer>> children = new ArrayList<>();
+    private final List<Integer> failure = new ArrayList<>();
+    // Patterns ending at each node, including those ending at its failure chain
+    private final List<List<Integer>> outputs = new ArrayList<>();
+    private final int[] patternLengths;
+
+    /**
+     * @param patterns non-empty patterns, matched exactly; their index identifies them in matches
+     */
+    public AhoCorasick(List<String> patterns) {
+        patternLengths = new int[patterns.size()];
+        addNode();
+        for (int i = 0; i < patterns.size(); i++) {
+            String pattern = patterns.get(i);
+            if (pattern.isEmpty()) {
+                throw new IllegalArgumentException("Patterns cannot be empty");
+            }
+            int node = 0;
+            for (int j = 0; j < pattern.length(); j++) {
+                Integer next = children.get(node).get(pattern.charAt(j));
+                if (next == null) {
+                    next = addNode();
+                    children.get(node).put(pattern.charAt(j), next);
+                }
+                node = next;
+            }
+            outputs.get(node).add(i);
+            patternLengths[i] = pattern.length();
+        }
+        buildFailureLinks();
+    }
+
+    public void search(CharSequence text, MatchHandler handler) {
+        int node = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            Integer next = children.get(node).get(c);
+            while (next == null && node != 0) {
+                node = failure.get(node);
+                next = children.get(node).get(c);
+            }
+            node = next != null ? next : 0;
+            for (int pattern : outputs.get(node)) {
+                handler.onMatch(pattern, i + 1 - patternLengths[pattern], i + 1);
+            }
+        }
+    }
+
+    private int addNode() {
+        children.add(new HashMap<>());
+        failure.add(0);
+        outputs.add(new ArrayList<>());
+        return children.size() - 1;
+    }
+
+    // Breadth-first, so the failure target of a node is complete before the node is visited
+    private void buildFailureLinks() {
+        Queue<Integer> queue = new ArrayDeque<>(children.get(0).values());
+        while (!queue.isEmpty()) {
+            int node = queue.poll();
+            for (Map.Entry<Character, Integer> edge : children.get(node).entrySet()) {
+                int child = edge.getValue();
+                int fallback = failure.get(node);
+                Integer target = children.get(fallback).get(edge.getKey());
+                while (target == null && fallback != 0) {
+                    fallback = failure.get(fallback);
+                    target = children.get(fallback).get(edge.getKey());
+                }
+                int link = target != null && target != child ? target : 0;
+                failure.set(child, link);
+                outputs.get(child).addAll(outputs.get(link));
+                queue.add(child);
+            }
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package com.matteominin.pdf_extractor.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Ball tree over unit-normalized vectors, answering cosine-distance range queries.
+ * For unit vectors ||a - b||^2 = 2 * (1 - cos(a, b)), so a cosine radius eps is a
+ * Euclidean radius sqrt(2 * eps), which lets the tree prune with the triangle inequality.
+ * The tree is immutable after construction and safe for concurrent queries.
+ */
+public class BallTree {
+
+    private static final int DEFAULT_LEAF_SIZE = 8;
+    private static final int SPLIT_ROUNDS = 3;
+
+    private final double[][] vectors;
+    private final int[] order;
+    private final int leafSize;
+    private final Node root;
+
+    private static class Node {
+        double[] center;
+        double centerNormSquared;
+        double radius;
+        int start;
+        int end;
+        Node left;
+        Node right;
+
+        boolean isLeaf() {
+            return left == null;
+        }
+    }
+
+    /**
+     * @param vectors unit-normalized vectors; rows with zero norm are not indexed
+     */
+    public BallTree(double[][] vectors) {
+        this(vectors, DEFAULT_LEAF_SIZE);
+    }
+
+    public BallTree(double[][] vectors, int leafSize) {
+        this.vectors = vectors;
+        this.leafSize = Math.max(1, leafSize);
+
+        int[] indexed = new int[vectors.length];
+        int count = 0;
+        for (int i = 0; i < vectors.length; i++) {
+            if (dot(vectors[i], vectors[i]) > 0.0) {
+                indexed[count++] = i;
+            }
+        }
+        this.order = Arrays.copyOf(indexed, count);
+        this.root = count > 0 ? build(0, count) : null;
+    }
+
+    /**
+     * Finds all indexed vectors within the given cosine distance of the query, excluding
+     * the query row itself.
+     *
+     * @param queryIndex row of the query vector
+     * @param epsilon maximum cosine distance (1 - cosine similarity)
+     * @return indices of the neighbors in ascending order
+     */
+    public int[] rangeQuery(int queryIndex, double epsilon) {
+        double[] query = vectors[queryIndex];
+        if (root == null || dot(query, query) == 0.0) {
+            return new int[0];
+        }
+
+        double radius = Math.sqrt(2.0 * epsilon);
+        List<Integer> neighbors = new ArrayList<>();
+        Deque<Node> stack = new ArrayDeque<>();
+        stack.push(root);
+
+        while (!stack.isEmpty()) {
+            Node node = stack.pop();
+            // ||q - c||^2 = 1 + ||c||^2 - 2 q.c for a unit query
+            double centerDistance = Math.sqrt(Math.max(0.0, 1.0 + node.centerNormSquared - 2.0 * dot(query, node.center)));
+            if (centerDistance - node.radius > radius) {
+                continue;
+            }
+            if (node.isLeaf()) {
+                for (int k = node.start; k < node.end; k++) {
+                    int candidate = order[k];
+                    if (candidate != queryIndex && 1.0 - dot(query, vectors[candidate]) <= epsilon) {
+                        neighbors.add(candidate);
+                    }
+                }
+            } else {
+                stack.push(node.right);
+                stack.push(node.left);
+            }
+        }
+
+        int[] result = neighbors.stream().mapToInt(Integer::intValue).toArray();
+        Arrays.sort(result);
+        return result;
+    }
+
+    /**
+     * Returns a unit-normalized copy of the given vectors. Zero vectors are kept as zero.
+     */
+    public static double[][] normalize(double[][] vectors) {
+        double[][] normalized = new double[vectors.length][];
+        for (int i = 0; i < vectors.length; i++) {
+            double norm = Math.sqrt(dot(vectors[i], vectors[i]));
+            normalized[i] = new double[vectors[i].length];
+            if (norm > 0.0) {
+                for (int j = 0; j < vectors[i].length; j++) {
+                    normalized[i][j] = vectors[i][j] / norm;
+                }
+            }
+        }
+        return normalized;
+    }
+
+    private Node build(int start, int end) {
+        Node node = new Node();
+        node.start = start;
+        node.end = end;
+        node.center = centroid(start, end);
+        node.centerNormSquared = dot(node.center, node.center);
+        node.radius = 0.0;
+        for (int k = start; k < end; k++) {
+            node.radius = Math.max(node.radius, euclidean(vectors[order[k]], node.center));
+        }
+
+        if (end - start <= leafSize) {
+            return node;
+        }
+
+        int middle = partition(start, end);
+        if (middle == start || middle == end) {
+            // Degenerate split (duplicates): fall back to halving
+            middle = start + (end - start) / 2;
+        }
+
+        node.left = build(start, middle);
+        node.right = build(middle, end);
+        return node;
+    }
+
+    private double[] centroid(int start, int end) {
+        double[] center = new double[vectors[order[start]].length];
+        for (int k = start; k < end; k++) {
+            double[] vector = vectors[order[k]];
+            for (int j = 0; j < center.length; j++) {
+                center[j] += vector[j];
+            }
+        }
+        for (int j = 0; j < center.length; j++) {
+            center[j] /= (end - start);
+        }
+        return center;
+    }
+
+    /**
+     * Splits the range with a few rounds of 2-means, so that tight groups of similar
+     * vectors end up in the same subtree and outliers do not drive the split.
+     *
+     * @return the first position of the second half
+     */
+    private int partition(int start, int end) {
+        int size = end - start;
+        double[] left = vectors[order[start + size / 3]].clone();
+        double[] right = vectors[order[start + (2 * size) / 3]].clone();
+
+        int middle = start;
+        for (int round = 0; round < SPLIT_ROUNDS; round++) {
+            middle = start;
+            for (int k = start; k < end; k++) {
+                int point = order[k];
+                if (euclidean(vectors[point], left) <= euclidean(vectors[point], right)) {
+                    order[k] = order[middle];
+                    order[middle] = point;
+                    middle++;
+                }
+            }
+            if (middle == start || middle == end) {
+                break;
+            }
+            left = centroid(start, middle);
+            right = centroid(middle, end);
+        }
+        return middle;
+    }
+
+    // Four independent accumulators let the JIT pipeline the multiply-adds
+    private static double dot(double[] a, double[] b) {
+        double s0 = 0.0, s1 = 0.0, s2 = 0.0, s3 = 0.0;
+        int i = 0;
+        for (; i + 3 < a.length; i += 4) {
+            s0 += a[i] * b[i];
+            s1 += a[i + 1] * b[i + 1];
+            s2 += a[i + 2] * b[i + 2];
+            s3 += a[i + 3] * b[i + 3];
+        }
+        for (; i < a.length; i++) {
+            s0 += a[i] * b[i];
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    private static double euclidean(double[] a, double[] b) {
+        double sum = 0.0;
+        for (int i = 0; i < a.length; i++) {
+            double diff = a[i] - b[i];
+            sum += diff * diff;
+        }
+        return Math.sqrt(sum);
+    }
+}
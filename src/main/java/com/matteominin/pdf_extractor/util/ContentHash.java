@@ -0,0 +1,68 @@
+package com.matteominin.pdf_extractor.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * SHA-256 content hashes used as idempotency keys for stored documents.
+ */
+public final class ContentHash {
+
+    private ContentHash() {
+    }
+
+    /**
+     * Hashes the given parts in order. Parts are separated by a NUL character so that
+     * ("ab", "c") and ("a", "bc") differ; null parts hash like empty strings.
+     *
+     * @return lowercase hex SHA-256 digest
+     */
+    public static String of(String... parts) {
+        MessageDigest digest = sha256();
+        for (int i = 0; i < parts.length; i++) {
+            if (i > 0) {
+                digest.update((byte) 0);
+            }
+            if (parts[i] != null) {
+                digest.update(parts[i].getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * @return lowercase hex SHA-256 digest of the bytes
+     */
+    public static String of(byte[] bytes) {
+        return HexFormat.of().formatHex(sha256().digest(bytes));
+    }
+
+    /**
+     * @return lowercase hex SHA-256 digest of the file's content, read in a streaming fashion
+     */
+    public static String of(Path file) throws IOException {
+        MessageDigest digest = sha256();
+        try (InputStream in = Files.newInputStream(file)) {
+            byte[] buffer = new byte[64 * 1024];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.matteominin.pdf_extractor.util;
+
+import java.io.ByteArrayOutputStream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Deflate compression of stored payloads (evidence blobs, archived coverage reports).
+ * The uncompressed length is stored next to the payload and passed back on decompression.
+ */
+public final class Deflate {
+
+    private Deflate() {
+    }
+
+    public static byte[] compress(byte[] raw) {
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try {
+            deflater.setInput(raw);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, raw.length / 2));
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * @throws IllegalStateException if the data is corrupted or does not inflate to exactly
+     *                               {@code length} bytes
+     */
+    public static byte[] decompress(byte[] compressed, int length) {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            byte[] raw = new byte[length];
+            int read = 0;
+            while (read < length && !inflater.finished()) {
+                int n = inflater.inflate(raw, read, length - read);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new DataFormatException("truncated data");
+                }
+                read += n;
+            }
+            if (read < length) {
+                throw new IllegalStateException("Compressed data inflates to " + read + " bytes, expected " + length);
+            }
+            // The end of the stream may only be seen by one more call, which must not produce data
+            if (!inflater.finished() && (inflater.inflate(new byte[1]) > 0 || !inflater.finished())) {
+                throw new IllegalStateException("Compressed data inflates to more than " + length + " bytes");
+            }
+            return raw;
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Corrupted compressed data", e);
+        } finally {
+            inflater.end();
+        }
+    }
+}
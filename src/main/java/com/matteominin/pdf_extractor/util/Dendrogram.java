@@ -0,0 +1,90 @@
+package com.matteominin.pdf_extractor.util;
+
+import java.util.Arrays;
+
+/**
+ * Merge history of an agglomerative clustering over {@code size} leaves. Each merge joins
+ * the clusters containing two leaves at a given cosine distance. Merges are kept sorted by
+ * distance, so cutting the tree at any distance is a prefix scan with union-find.
+ */
+public class Dendrogram {
+
+    private final int size;
+    private final int[] left;
+    private final int[] right;
+    private final double[] heights;
+
+    /**
+     * @param size number of leaves
+     * @param left leaf in the first merged cluster, per merge
+     * @param right leaf in the second merged cluster, per merge
+     * @param heights cosine distance of each merge
+     */
+    public Dendrogram(int size, int[] left, int[] right, double[] heights) {
+        if (left.length != right.length || left.length != heights.length) {
+            throw new IllegalArgumentException("Merge arrays must have the same length");
+        }
+
+        Integer[] order = new Integer[heights.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(heights[a], heights[b]));
+
+        this.size = size;
+        this.left = new int[order.length];
+        this.right = new int[order.length];
+        this.heights = new double[order.length];
+        for (int i = 0; i < order.length; i++) {
+            this.left[i] = left[order[i]];
+            this.right[i] = right[order[i]];
+            this.heights[i] = heights[order[i]];
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Cuts the tree at the given distance: all merges at or below it are applied.
+     *
+     * @param maxDistance maximum cosine distance (1 - similarity threshold)
+     * @return cluster label per leaf, numbered 0..k-1 in order of first leaf
+     */
+    public int[] cut(double maxDistance) {
+        int[] parent = new int[size];
+        for (int i = 0; i < size; i++) {
+            parent[i] = i;
+        }
+
+        for (int m = 0; m < heights.length && heights[m] <= maxDistance; m++) {
+            int a = find(parent, left[m]);
+            int b = find(parent, right[m]);
+            if (a != b) {
+                parent[Math.max(a, b)] = Math.min(a, b);
+            }
+        }
+
+        int[] labels = new int[size];
+        int[] labelOfRoot = new int[size];
+        Arrays.fill(labelOfRoot, -1);
+        int next = 0;
+        for (int i = 0; i < size; i++) {
+            int root = find(parent, i);
+            if (labelOfRoot[root] < 0) {
+                labelOfRoot[root] = next++;
+            }
+            labels[i] = labelOfRoot[root];
+        }
+        return labels;
+    }
+
+    private static int find(int[] parent, int i) {
+        while (parent[i] != i) {
+            parent[i] = parent[parent[i]];
+            i = parent[i];
+        }
+        return i;
+    }
+}
@@ -0,0 +1,44 @@
+package com.matteominin.pdf_extractor.util;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Maps document keys (file paths) to dense integers 0..n-1, so the set of documents that
+ * support a cluster can be kept as a {@link BitSet} and its size read with a popcount.
+ */
+public class DocumentDictionary {
+
+    private final Map<String, Integer> ids = new HashMap<>();
+
+    /**
+     * Returns the id of the document, assigning the next free one on first sight.
+     * A null key is a document of its own.
+     */
+    public int idOf(String document) {
+        return ids.computeIfAbsent(document, key -> ids.size());
+    }
+
+    /**
+     * @return number of distinct documents seen so far
+     */
+    public int size() {
+        return ids.size();
+    }
+
+    /**
+     * Minimum number of supporting documents: the larger of the absolute count and the given
+     * fraction of all documents, rounded up.
+     *
+     * @param minCount absolute minimum number of documents
+     * @param minFraction minimum fraction of the corpus documents (0.0 to 1.0)
+     */
+    public int requiredSupport(int minCount, double minFraction) {
+        return requiredSupport(minCount, minFraction, size());
+    }
+
+    public static int requiredSupport(int minCount, double minFraction, int documentCount) {
+        return Math.max(minCount, (int) Math.ceil(minFraction * documentCount));
+    }
+}
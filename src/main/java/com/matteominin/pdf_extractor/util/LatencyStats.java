@@ -0,0 +1,69 @@
+package com.matteominin.pdf_extractor.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free latency recorder. Samples are counted in power-of-two microsecond buckets, so
+ * percentiles are upper bounds accurate to a factor of two, which is enough to see where
+ * time goes without keeping the samples.
+ */
+public class LatencyStats {
+
+    private static final int BUCKETS = 40;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong totalNanos = new AtomicLong();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    public void record(long nanos) {
+        long micros = Math.max(1, nanos / 1000);
+        int bucket = Math.min(BUCKETS - 1, 63 - Long.numberOfLeadingZeros(micros));
+        buckets.incrementAndGet(bucket);
+        count.incrementAndGet();
+        totalNanos.addAndGet(nanos);
+        maxNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * @param percentile percentile between 0 and 100
+     * @return upper bound of the bucket holding the percentile, in milliseconds
+     */
+    public double percentileMillis(double percentile) {
+        long total = count.get();
+        if (total == 0) {
+            return 0.0;
+        }
+        long rank = (long) Math.ceil(percentile / 100.0 * total);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += buckets.get(i);
+            if (seen >= rank) {
+                return (1L << (i + 1)) / 1000.0;
+            }
+        }
+        return maxNanos.get() / 1_000_000.0;
+    }
+
+    /**
+     * @return count, mean, max and p50/p95/p99 in milliseconds
+     */
+    public Map<String, Object> toMap() {
+        long total = count.get();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("count", total);
+        stats.put("meanMs", total > 0 ? totalNanos.get() / 1_000_000.0 / total : 0.0);
+        stats.put("maxMs", maxNanos.get() / 1_000_000.0);
+        stats.put("p50Ms", percentileMillis(50));
+        stats.put("p95Ms", percentileMillis(95));
+        stats.put("p99Ms", percentileMillis(99));
+        return stats;
+    }
+}
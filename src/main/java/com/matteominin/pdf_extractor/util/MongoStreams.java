@@ -0,0 +1,80 @@
+package com.matteominin.pdf_extractor.util;
+
+import com.mongodb.client.FindIterable;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.model.Projections;
+import org.bson.Document;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Lazily consumed streams over MongoDB cursors. The cursor is opened on the first element
+ * pulled, fetches {@code batchSize} documents per round trip, and is closed as soon as it is
+ * exhausted or the stream is closed, whichever comes first. Callers that may stop early
+ * (limit, findFirst, exceptions) should use the stream in a try-with-resources block.
+ */
+public final class MongoStreams {
+
+    private MongoStreams() {
+    }
+
+    /**
+     * @param find query to run
+     * @param batchSize documents fetched per round trip
+     * @param fields fields to include ({@code _id} is always included), or null for whole documents
+     * @param mapper conversion applied to each document
+     * @return sequential stream over the query results
+     */
+    public static <T> Stream<T> stream(FindIterable<Document> find, int batchSize, Collection<String> fields,
+            Function<Document, T> mapper) {
+        if (fields != null) {
+            find = find.projection(Projections.include(List.copyOf(fields)));
+        }
+        CursorSpliterator<T> spliterator = new CursorSpliterator<>(find.batchSize(batchSize), mapper);
+        return StreamSupport.stream(spliterator, false).onClose(spliterator::close);
+    }
+
+    private static class CursorSpliterator<T> extends Spliterators.AbstractSpliterator<T> {
+        private final FindIterable<Document> find;
+        private final Function<Document, T> mapper;
+        private MongoCursor<Document> cursor;
+        private boolean exhausted;
+
+        CursorSpliterator(FindIterable<Document> find, Function<Document, T> mapper) {
+            super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+            this.find = find;
+            this.mapper = mapper;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            if (exhausted) {
+                return false;
+            }
+            if (cursor == null) {
+                cursor = find.cursor();
+            }
+            if (!cursor.hasNext()) {
+                close();
+                return false;
+            }
+            action.accept(mapper.apply(cursor.next()));
+            return true;
+        }
+
+        void close() {
+            exhausted = true;
+            if (cursor != null) {
+                cursor.close();
+                cursor = null;
+            }
+        }
+    }
+}
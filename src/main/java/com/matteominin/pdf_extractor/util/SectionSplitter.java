@@ -0,0 +1,159 @@
+package com.matteominin.pdf_extractor.util;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Splits a document's text into sections by their titles. All titles are located in a single
+ * pass with an {@link AhoCorasick} automaton over a normalized copy of the text (lowercase,
+ * whitespace runs collapsed to one space), so a title still matches when the extracted text
+ * breaks it across lines or capitalizes it differently. Sections are then sliced from the
+ * original text by offset.
+ */
+public final class SectionSplitter {
+
+    private SectionSplitter() {
+    }
+
+    /**
+     * Returns the text of each section: from the end of the first occurrence of its title to the
+     * start of the first occurrence of the next title after it, or to the end of the text for the
+     * last one. A section whose title, or next title, is not found is empty.
+     *
+     * @param skipIndex when the first title occurs twice, treat everything from its first
+     *                  occurrence to its next, non-overlapping one as the table of contents and
+     *                  remove it before searching the titles
+     */
+    public static List<String> split(String text, List<String> titles, boolean skipIndex) {
+        if (skipIndex && !titles.isEmpty()) {
+            String cut = withoutIndex(text, titles.get(0));
+            if (cut != null) {
+                text = cut;
+            }
+        }
+        NormalizedText normalized = NormalizedText.of(text);
+
+        // Duplicate titles share one pattern
+        Map<String, Integer> patternIds = new LinkedHashMap<>();
+        int[] patternOfTitle = new int[titles.size()];
+        for (int i = 0; i < titles.size(); i++) {
+            String pattern = normalizedTitle(titles.get(i));
+            patternOfTitle[i] = pattern.isEmpty() ? -1 : patternIds.computeIfAbsent(pattern, p -> patternIds.size());
+        }
+
+        // Occurrences of each pattern as original [start, end) offsets. Matches are reported in
+        // order of their end, which for a single pattern is also the order of their start
+        List<List<int[]>> occurrences = new ArrayList<>();
+        patternIds.keySet().forEach(pattern -> occurrences.add(new ArrayList<>()));
+        if (!patternIds.isEmpty()) {
+            new AhoCorasick(new ArrayList<>(patternIds.keySet())).search(normalized.text, (pattern, start, end) ->
+                occurrences.get(pattern).add(new int[] {normalized.originalStart(start), normalized.originalEnd(end)}));
+        }
+
+        List<String> sections = new ArrayList<>(titles.size());
+        for (int i = 0; i < titles.size(); i++) {
+            int[] title = patternOfTitle[i] >= 0 ? first(occurrences.get(patternOfTitle[i]), 0) : null;
+            if (title == null) {
+                sections.add("");
+                continue;
+            }
+            int end = text.length();
+            if (i + 1 < titles.size()) {
+                int[] next = patternOfTitle[i + 1] >= 0 ? first(occurrences.get(patternOfTitle[i + 1]), title[1]) : null;
+                if (next == null) {
+                    sections.add("");
+                    continue;
+                }
+                end = next[0];
+            }
+            sections.add(text.substring(title[1], end).strip());
+        }
+        return sections;
+    }
+
+    /**
+     * Removes the table of contents: everything from the first occurrence of the title to the
+     * next occurrence that does not overlap it, which is kept. Titles are then searched in the
+     * remaining text, so a match may span the cut, as it did when this was a regex replacement.
+     *
+     * @return the text without its table of contents, or null if the title does not occur twice
+     */
+    private static String withoutIndex(String text, String firstTitle) {
+        String pattern = normalizedTitle(firstTitle);
+        if (pattern.isEmpty()) {
+            return null;
+        }
+        NormalizedText normalized = NormalizedText.of(text);
+        int first = normalized.text.indexOf(pattern);
+        int second = first < 0 ? -1 : normalized.text.indexOf(pattern, first + pattern.length());
+        if (second < 0) {
+            return null;
+        }
+        return text.substring(0, normalized.originalStart(first)) + text.substring(normalized.originalStart(second));
+    }
+
+    private static String normalizedTitle(String title) {
+        return NormalizedText.of(title).text.strip();
+    }
+
+    // First occurrence starting at or after the offset
+    private static int[] first(List<int[]> occurrences, int from) {
+        int low = 0;
+        int high = occurrences.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (occurrences.get(mid)[0] < from) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low < occurrences.size() ? occurrences.get(low) : null;
+    }
+
+    /**
+     * Lowercased text with whitespace runs collapsed, and the original offset of each character.
+     */
+    private static final class NormalizedText {
+        final String text;
+        final int[] originalOffsets;
+
+        private NormalizedText(String text, int[] originalOffsets) {
+            this.text = text;
+            this.originalOffsets = originalOffsets;
+        }
+
+        static NormalizedText of(String original) {
+            StringBuilder text = new StringBuilder(original.length());
+            int[] offsets = new int[original.length()];
+            boolean inWhitespace = false;
+            for (int i = 0; i < original.length(); i++) {
+                char c = original.charAt(i);
+                if (Character.isWhitespace(c) || Character.isSpaceChar(c)) {
+                    if (inWhitespace) {
+                        continue;
+                    }
+                    inWhitespace = true;
+                    c = ' ';
+                } else {
+                    inWhitespace = false;
+                    c = Character.toLowerCase(c);
+                }
+                offsets[text.length()] = i;
+                text.append(c);
+            }
+            return new NormalizedText(text.toString(), offsets);
+        }
+
+        int originalStart(int start) {
+            return originalOffsets[start];
+        }
+
+        // Titles never end in whitespace, so the last matched character maps to one original character
+        int originalEnd(int end) {
+            return originalOffsets[end - 1] + 1;
+        }
+    }
+}
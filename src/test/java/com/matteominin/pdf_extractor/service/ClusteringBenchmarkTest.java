@@ -0,0 +1,45 @@
+package com.matteominin.pdf_extractor.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Linear-scan (Smile) versus ball-tree DBSCAN on synthetic 1536-d clustered embeddings,
+ * eps 0.15 and minPts 2. Off by default; run with {@code -Dbenchmark=true}, optionally
+ * {@code -Dbenchmark.sizes=2000,5000}, and {@code -XX:ActiveProcessorCount=1} for single-core
+ * timings.
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class ClusteringBenchmarkTest {
+
+    private static final int DIMENSIONS = 1536;
+    private static final double EPSILON = 0.15;
+    private static final int MIN_PTS = 2;
+
+    @Test
+    void indexedVersusLinearDbscan() {
+        for (String size : System.getProperty("benchmark.sizes", "2000,5000").split(",")) {
+            int n = Integer.parseInt(size.trim());
+            double[][] embeddings = ClusteringServiceTest.clusteredEmbeddings(new Random(n), n * 9 / 10,
+                Math.max(1, n / 20), DIMENSIONS, 0.3, n / 10);
+            List<String> ids = ClusteringServiceTest.ids(n);
+
+            long start = System.nanoTime();
+            List<List<String>> linear = ClusteringService.clusterWithDBSCAN(ids, embeddings, EPSILON, MIN_PTS);
+            long linearMs = (System.nanoTime() - start) / 1_000_000;
+
+            start = System.nanoTime();
+            List<List<String>> indexed = ClusteringService.clusterWithIndexedDBSCAN(ids, embeddings, EPSILON, MIN_PTS);
+            long indexedMs = (System.nanoTime() - start) / 1_000_000;
+
+            assertEquals(ClusteringServiceTest.asSets(linear), ClusteringServiceTest.asSets(indexed));
+            System.out.printf("n=%d: linear %d ms, indexed %d ms, %d clusters%n", n, linearMs, indexedMs,
+                indexed.size());
+        }
+    }
+}
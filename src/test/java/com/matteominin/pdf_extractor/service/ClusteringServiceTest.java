@@ -0,0 +1,182 @@
+package com.matteominin.pdf_extractor.service;
+
+import com.matteominin.pdf_extractor.util.Dendrogram;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ClusteringServiceTest {
+
+    // Loose clusters: at eps 0.15 some clustered points only border a cluster or are noise, so
+    // the result depends on following Smile's expansion order
+    @Test
+    void indexedDbscanMatchesSmileDbscan() {
+        double[][] embeddings = clusteredEmbeddings(new Random(42), 400, 12, 64, 0.45, 40);
+        List<String> ids = ids(embeddings.length);
+
+        for (int minPts : new int[] {1, 2, 4}) {
+            for (double epsilon : new double[] {0.1, 0.15, 0.3}) {
+                List<List<String>> expected = ClusteringService.clusterWithDBSCAN(ids, embeddings, epsilon, minPts);
+                List<List<String>> actual = ClusteringService.clusterWithIndexedDBSCAN(ids, embeddings, epsilon, minPts);
+
+                assertEquals(asSets(expected), asSets(actual), "eps=" + epsilon + ", minPts=" + minPts);
+                assertEquals(noise(ids, expected), noise(ids, actual), "eps=" + epsilon + ", minPts=" + minPts);
+            }
+        }
+    }
+
+    @Test
+    void outliersAreLeftOutOfEveryCluster() {
+        double[][] embeddings = clusteredEmbeddings(new Random(7), 200, 5, 32, 0.05, 30);
+        // A zero vector has no neighbors, so it is noise whatever epsilon is
+        embeddings[0] = new double[32];
+        List<String> ids = ids(embeddings.length);
+
+        List<List<String>> expected = ClusteringService.clusterWithDBSCAN(ids, embeddings, 0.1, 3);
+        List<List<String>> actual = ClusteringService.clusterWithIndexedDBSCAN(ids, embeddings, 0.1, 3);
+
+        Set<String> noise = noise(ids, actual);
+        assertFalse(noise.isEmpty());
+        assertTrue(noise.contains("f0"));
+        assertEquals(noise(ids, expected), noise);
+        assertEquals(asSets(expected), asSets(actual));
+        // Before the OUTLIER fix, Smile's noise label came back as one extra cluster
+        for (List<String> cluster : expected) {
+            assertFalse(cluster.contains("f0"));
+        }
+    }
+
+    // Unit vectors at 0, 10, 25, 60 and 90 degrees: the cosine distance of two of them is
+    // 1 - cos of the angle between them
+    //   single linkage:  AB d(10), BC d(15), DE d(30), CD d(35)
+    //   average linkage: AB d(10), AB-C (d(25) + d(15)) / 2 = 0.0639, DE d(30),
+    //                    ABC-DE (d(60) + d(90) + d(50) + d(80) + d(35) + d(65)) / 6 = 0.5736
+    private static final double[] ANGLES = {0, 10, 25, 60, 90};
+
+    @Test
+    void singleLinkageMergesTheClosestPairOfLeaves() {
+        Dendrogram dendrogram = ClusteringService.singleLinkageDendrogram(atAngles(ANGLES));
+
+        assertCutsAround(dendrogram, distance(10), new int[] {0, 1, 2, 3, 4}, new int[] {0, 0, 1, 2, 3});
+        assertCutsAround(dendrogram, distance(15), new int[] {0, 0, 1, 2, 3}, new int[] {0, 0, 0, 1, 2});
+        assertCutsAround(dendrogram, distance(30), new int[] {0, 0, 0, 1, 2}, new int[] {0, 0, 0, 1, 1});
+        assertCutsAround(dendrogram, distance(35), new int[] {0, 0, 0, 1, 1}, new int[] {0, 0, 0, 0, 0});
+    }
+
+    @Test
+    void averageLinkageMergesTheClosestPairOfClustersOnAverage() {
+        Dendrogram dendrogram = ClusteringService.averageLinkageDendrogram(atAngles(ANGLES));
+
+        double abToC = (distance(25) + distance(15)) / 2;
+        double abcToDe = (distance(60) + distance(90) + distance(50) + distance(80) + distance(35) + distance(65)) / 6;
+        assertCutsAround(dendrogram, distance(10), new int[] {0, 1, 2, 3, 4}, new int[] {0, 0, 1, 2, 3});
+        assertCutsAround(dendrogram, abToC, new int[] {0, 0, 1, 2, 3}, new int[] {0, 0, 0, 1, 2});
+        assertCutsAround(dendrogram, distance(30), new int[] {0, 0, 0, 1, 2}, new int[] {0, 0, 0, 1, 1});
+        assertCutsAround(dendrogram, abcToDe, new int[] {0, 0, 0, 1, 1}, new int[] {0, 0, 0, 0, 0});
+    }
+
+    @Test
+    void linkagesDifferAtTheSameThreshold() {
+        double[][] embeddings = atAngles(ANGLES);
+        Dendrogram single = ClusteringService.singleLinkageDendrogram(embeddings);
+        Dendrogram average = ClusteringService.averageLinkageDendrogram(embeddings);
+
+        // C is within d(15) of B, but (d(25) + d(15)) / 2 from A and B on average
+        assertArrayEquals(new int[] {0, 0, 0, 1, 2}, single.cut(0.05));
+        assertArrayEquals(new int[] {0, 0, 1, 2, 3}, average.cut(0.05));
+        // Single linkage chains D to C; on average the two groups are far apart
+        assertArrayEquals(new int[] {0, 0, 0, 0, 0}, single.cut(0.3));
+        assertArrayEquals(new int[] {0, 0, 0, 1, 1}, average.cut(0.3));
+    }
+
+    @Test
+    void linkagesOfOneOrNoEmbeddings() {
+        assertArrayEquals(new int[0], ClusteringService.singleLinkageDendrogram(new double[0][]).cut(1));
+        assertArrayEquals(new int[0], ClusteringService.averageLinkageDendrogram(new double[0][]).cut(1));
+        assertArrayEquals(new int[] {0}, ClusteringService.singleLinkageDendrogram(atAngles(new double[] {0})).cut(1));
+        assertArrayEquals(new int[] {0}, ClusteringService.averageLinkageDendrogram(atAngles(new double[] {0})).cut(1));
+    }
+
+    /**
+     * Checks the labels just below and just above a merge height. Distances are stored as
+     * floats for average linkage, hence the margin.
+     */
+    private static void assertCutsAround(Dendrogram dendrogram, double height, int[] below, int[] above) {
+        assertArrayEquals(below, dendrogram.cut(height - 1e-6), "below " + height);
+        assertArrayEquals(above, dendrogram.cut(height + 1e-6), "above " + height);
+    }
+
+    private static double[][] atAngles(double[] degrees) {
+        double[][] embeddings = new double[degrees.length][];
+        for (int i = 0; i < degrees.length; i++) {
+            double radians = Math.toRadians(degrees[i]);
+            embeddings[i] = new double[] {Math.cos(radians), Math.sin(radians)};
+        }
+        return embeddings;
+    }
+
+    private static double distance(double degrees) {
+        return 1 - Math.cos(Math.toRadians(degrees));
+    }
+
+    /**
+     * Points scattered around random centers, followed by uniformly random outliers.
+     *
+     * @param spread standard deviation of each coordinate around its center
+     */
+    static double[][] clusteredEmbeddings(Random random, int clustered, int clusters, int dimensions,
+                                          double spread, int outliers) {
+        double[][] centers = new double[clusters][dimensions];
+        for (double[] center : centers) {
+            for (int j = 0; j < dimensions; j++) {
+                center[j] = random.nextGaussian();
+            }
+        }
+
+        double[][] embeddings = new double[clustered + outliers][dimensions];
+        for (int i = 0; i < clustered; i++) {
+            double[] center = centers[random.nextInt(clusters)];
+            for (int j = 0; j < dimensions; j++) {
+                embeddings[i][j] = center[j] + spread * random.nextGaussian();
+            }
+        }
+        for (int i = clustered; i < embeddings.length; i++) {
+            for (int j = 0; j < dimensions; j++) {
+                embeddings[i][j] = random.nextGaussian();
+            }
+        }
+        return embeddings;
+    }
+
+    static List<String> ids(int count) {
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            ids.add("f" + i);
+        }
+        return ids;
+    }
+
+    // Cluster order differs between the two paths, member order does not matter
+    static Set<Set<String>> asSets(List<List<String>> clusters) {
+        Set<Set<String>> sets = new HashSet<>();
+        for (List<String> cluster : clusters) {
+            assertTrue(sets.add(new HashSet<>(cluster)), "duplicate cluster " + cluster);
+        }
+        return sets;
+    }
+
+    private static Set<String> noise(List<String> ids, List<List<String>> clusters) {
+        Set<String> noise = new HashSet<>(ids);
+        clusters.forEach(noise::removeAll);
+        return noise;
+    }
+}
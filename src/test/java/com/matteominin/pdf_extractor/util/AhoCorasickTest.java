@@ -0,0 +1,70 @@
+package com.matteominin.pdf_extractor.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AhoCorasickTest {
+
+    @Test
+    void findsOverlappingPatterns() {
+        AhoCorasick automaton = new AhoCorasick(List.of("he", "she", "his", "hers"));
+
+        assertEquals(List.of("she 1-4", "he 2-4", "hers 2-6"), matches(automaton, List.of("he", "she", "his", "hers"), "ushers"));
+    }
+
+    @Test
+    void findsPatternsThatAreSuffixesOfAnother() {
+        List<String> patterns = List.of("abc", "bc", "c");
+
+        assertEquals(List.of("abc 1-4", "bc 2-4", "c 3-4"), matches(new AhoCorasick(patterns), patterns, "xabcx"));
+    }
+
+    @Test
+    void findsEveryOccurrenceOfARepeatingPattern() {
+        List<String> patterns = List.of("aa");
+
+        assertEquals(List.of("aa 0-2", "aa 1-3", "aa 2-4"), matches(new AhoCorasick(patterns), patterns, "aaaa"));
+    }
+
+    @Test
+    void followsFailureLinksAfterAPartialMatch() {
+        // "ab" is a prefix of "abd"; on 'c' the search must fall back to "b" to find "bc"
+        List<String> patterns = List.of("abd", "bc");
+
+        assertEquals(List.of("bc 1-3"), matches(new AhoCorasick(patterns), patterns, "abc"));
+    }
+
+    @Test
+    void reportsDuplicatePatternsSeparately() {
+        List<String> patterns = List.of("ab", "ab");
+
+        assertEquals(List.of("ab 0-2", "ab 0-2"), matches(new AhoCorasick(patterns), patterns, "ab"));
+    }
+
+    @Test
+    void matchesCaseSensitively() {
+        List<String> patterns = List.of("intro");
+
+        assertTrue(matches(new AhoCorasick(patterns), patterns, "Intro INTRO").isEmpty());
+    }
+
+    @Test
+    void rejectsEmptyPatterns() {
+        assertThrows(IllegalArgumentException.class, () -> new AhoCorasick(List.of("a", "")));
+    }
+
+    private static List<String> matches(AhoCorasick automaton, List<String> patterns, String text) {
+        List<String> matches = new ArrayList<>();
+        automaton.search(text, (pattern, start, end) -> {
+            assertEquals(patterns.get(pattern), text.substring(start, end));
+            matches.add(patterns.get(pattern) + " " + start + "-" + end);
+        });
+        return matches;
+    }
+}
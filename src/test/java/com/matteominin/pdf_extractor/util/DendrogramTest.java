@@ -0,0 +1,62 @@
+package com.matteominin.pdf_extractor.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class DendrogramTest {
+
+    // Merges given out of height order: 3-4 at 0.1, 0-1 at 0.2, 1-2 at 0.4, 0-4 at 0.7
+    private static final Dendrogram DENDROGRAM = new Dendrogram(
+            5,
+            new int[] {1, 0, 3, 0},
+            new int[] {2, 4, 4, 1},
+            new double[] {0.4, 0.7, 0.1, 0.2});
+
+    @Test
+    void cutBelowEveryMergeKeepsEachLeafApart() {
+        assertArrayEquals(new int[] {0, 1, 2, 3, 4}, DENDROGRAM.cut(0.05));
+    }
+
+    @Test
+    void cutAppliesMergesInHeightOrder() {
+        assertArrayEquals(new int[] {0, 1, 2, 3, 3}, DENDROGRAM.cut(0.15));
+        assertArrayEquals(new int[] {0, 0, 1, 2, 2}, DENDROGRAM.cut(0.3));
+        assertArrayEquals(new int[] {0, 0, 0, 1, 1}, DENDROGRAM.cut(0.5));
+        assertArrayEquals(new int[] {0, 0, 0, 0, 0}, DENDROGRAM.cut(1));
+    }
+
+    @Test
+    void cutIncludesMergesAtExactlyTheDistance() {
+        assertArrayEquals(new int[] {0, 0, 1, 2, 2}, DENDROGRAM.cut(0.2));
+        assertArrayEquals(new int[] {0, 0, 0, 0, 0}, DENDROGRAM.cut(0.7));
+    }
+
+    @Test
+    void mergeOfLeavesAlreadyTogetherChangesNothing() {
+        Dendrogram dendrogram = new Dendrogram(
+                3,
+                new int[] {0, 1, 0},
+                new int[] {1, 2, 2},
+                new double[] {0.1, 0.2, 0.3});
+
+        assertArrayEquals(new int[] {0, 0, 0}, dendrogram.cut(0.2));
+        assertArrayEquals(new int[] {0, 0, 0}, dendrogram.cut(0.3));
+    }
+
+    @Test
+    void rejectsMergeArraysOfDifferentLengths() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new Dendrogram(3, new int[] {0, 1}, new int[] {1}, new double[] {0.1, 0.2}));
+    }
+
+    @Test
+    void emptyDendrogramHasNoLabels() {
+        Dendrogram dendrogram = new Dendrogram(0, new int[0], new int[0], new double[0]);
+
+        assertEquals(0, dendrogram.size());
+        assertArrayEquals(new int[0], dendrogram.cut(1));
+    }
+}
@@ -0,0 +1,165 @@
+package com.matteominin.pdf_extractor.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SectionSplitterTest {
+
+    private static final List<String> TITLES = List.of("1 Introduction", "2 Method", "3 Results");
+
+    @Test
+    void splitsAtEachTitleAndRunsTheLastSectionToTheEnd() {
+        String text = "Title page 1 Introduction intro text 2 Method method text 3 Results results text";
+
+        assertEquals(List.of("intro text", "method text", "results text"), SectionSplitter.split(text, TITLES, false));
+    }
+
+    @Test
+    void matchesTitlesIgnoringCaseAndWhitespace() {
+        String text = "1 INTRODUCTION intro text 2\tmethod method text 3   Results results text";
+
+        assertEquals(List.of("intro text", "method text", "results text"), SectionSplitter.split(text, TITLES, false));
+    }
+
+    @Test
+    void matchesTitlesSplitAcrossLines() {
+        String text = "1\nIntroduction\nintro text\n2 Method\nmethod text\n3\r\n  Results\nresults text\n";
+
+        assertEquals(List.of("intro text", "method text", "results text"), SectionSplitter.split(text, TITLES, false));
+        // Whitespace inside the titles themselves is normalized the same way
+        assertEquals(List.of("intro text", "method text", "results text"),
+                SectionSplitter.split(text, List.of(" 1  Introduction", "2\nMethod", "3 results"), false));
+    }
+
+    @Test
+    void keepsTheOriginalTextOfEachSection() {
+        String text = "1 Introduction Intro  Text\nline two 2 Method x 3 Results y";
+
+        assertEquals("Intro  Text\nline two", SectionSplitter.split(text, TITLES, false).get(0));
+    }
+
+    @Test
+    void skipsTheTableOfContentsLikeRemoveIndexFromText() {
+        String text = "Contents 1 Introduction 1 2 Method 3 3 Results 5 "
+                + "1 Introduction intro text 2 Method method text 3 Results results text";
+
+        assertEquals(List.of("intro text", "method text", "results text"), SectionSplitter.split(text, TITLES, true));
+        assertEquals(legacySplit(text, TITLES, true), SectionSplitter.split(text, TITLES, true));
+        // Without skipping, every title is found in the table of contents first
+        assertEquals(List.of("1", "3", "5 1 Introduction intro text 2 Method method text 3 Results results text"),
+                SectionSplitter.split(text, TITLES, false));
+    }
+
+    @Test
+    void skipsNothingWhenTheFirstTitleOccursOnce() {
+        String text = "Preface 1 Introduction intro text 2 Method method text 3 Results results text";
+
+        assertEquals(List.of("intro text", "method text", "results text"), SectionSplitter.split(text, TITLES, true));
+        assertEquals(legacySplit(text, TITLES, true), SectionSplitter.split(text, TITLES, true));
+    }
+
+    @Test
+    void tableOfContentsEndsAtTheNextNonOverlappingOccurrence() {
+        List<String> titles = List.of("a a", "b");
+        // "a a a" holds two overlapping occurrences of "a a"; the table of contents runs to the
+        // one after "toc b"
+        String text = "a a a toc b a a text b tail";
+
+        assertEquals(List.of("text", "tail"), SectionSplitter.split(text, titles, true));
+        assertEquals(legacySplit(text, titles, true), SectionSplitter.split(text, titles, true));
+    }
+
+    @Test
+    void titleMatchSpanningTheTableOfContentsIsKept() {
+        List<String> titles = List.of("b a", "ab");
+        // Cutting "b ab y " out of "x ab ab y b ab z" keeps the "ab" that starts before the
+        // table of contents, as the regex replacement did
+        String text = "x ab ab y b ab z";
+
+        assertEquals(List.of("", "ab z"), SectionSplitter.split(text, titles, true));
+        assertEquals(legacySplit(text, titles, true), SectionSplitter.split(text, titles, true));
+    }
+
+    @Test
+    void sectionWithoutNextTitleIsEmpty() {
+        String text = "1 Introduction intro text 3 Results results text";
+
+        // "2 Method" is missing: the introduction has no end, the method no start
+        assertEquals(List.of("", "", "results text"), SectionSplitter.split(text, TITLES, true));
+        assertEquals(legacySplit(text, TITLES, true), SectionSplitter.split(text, TITLES, true));
+    }
+
+    @Test
+    void nextTitleOnlyBeforeTheTitleIsMissing() {
+        String text = "2 Method 1 Introduction intro text";
+
+        assertEquals(List.of("", "", ""), SectionSplitter.split(text, TITLES, false));
+        assertEquals(legacySplit(text, TITLES, false), SectionSplitter.split(text, TITLES, false));
+    }
+
+    @Test
+    void blankTitleGivesAnEmptySection() {
+        assertEquals(List.of("", "", "results text"),
+                SectionSplitter.split("1 Introduction a 3 Results results text", List.of("1 Introduction", " ", "3 Results"), false));
+    }
+
+    // Exactly-cased titles over a small vocabulary, so titles recur, overlap, and appear in the
+    // table of contents; the splitter must agree with the regex code it replaced
+    @Test
+    void matchesRegexSplittingOnRandomTexts() {
+        String[] words = {"a", "b", "ab", "ba", "intro", "method", "x", "y"};
+        Random random = new Random(11);
+        for (int round = 0; round < 2000; round++) {
+            List<String> titles = new ArrayList<>();
+            int titleCount = 1 + random.nextInt(4);
+            for (int i = 0; i < titleCount; i++) {
+                titles.add(randomWords(random, words, 1 + random.nextInt(2)));
+            }
+            String text = randomWords(random, words, random.nextInt(40));
+            boolean skipIndex = random.nextBoolean();
+
+            assertEquals(legacySplit(text, titles, skipIndex), SectionSplitter.split(text, titles, skipIndex),
+                    "titles=" + titles + ", text=" + text + ", skipIndex=" + skipIndex);
+        }
+    }
+
+    private static String randomWords(Random random, String[] words, int count) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                text.append(' ');
+            }
+            text.append(words[random.nextInt(words.length)]);
+        }
+        return text.toString();
+    }
+
+    /**
+     * The section extraction PdfService used before SectionSplitter: removeIndexFromText, then
+     * one (?s)title(.*?)next regex per section.
+     */
+    private static List<String> legacySplit(String text, List<String> titles, boolean skipIndex) {
+        if (skipIndex) {
+            String first = titles.get(0);
+            Matcher index = Pattern.compile("(?s)" + Pattern.quote(first) + "(.*?)" + Pattern.quote(first)).matcher(text);
+            if (index.find()) {
+                text = text.substring(0, index.start()) + first + text.substring(index.end());
+            }
+        }
+
+        List<String> sections = new ArrayList<>();
+        for (int i = 0; i < titles.size(); i++) {
+            String next = i + 1 < titles.size() ? Pattern.quote(titles.get(i + 1)) : "$";
+            Matcher matcher = Pattern.compile("(?s)" + Pattern.quote(titles.get(i)) + "(.*?)" + next).matcher(text);
+            sections.add(matcher.find() ? matcher.group(1).trim() : "");
+        }
+        return sections;
+    }
+}